@@ -0,0 +1,43 @@
+package com.laurapall.sectorselect.controller;
+
+import com.laurapall.sectorselect.dto.SectorReloadResponse;
+import com.laurapall.sectorselect.service.SectorCatalogReloader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/sectors/admin")
+public class SectorAdminController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SectorAdminController.class);
+    private final SectorCatalogReloader reloader;
+
+    /**
+     * Controller constructor.
+     * @param reloader sector catalog reloader.
+     */
+    public SectorAdminController(SectorCatalogReloader reloader) {
+        this.reloader = reloader;
+    }
+
+    /**
+     * Reload the sector catalog and apply the changes.
+     * @return summary of applied changes, or conflict if the new catalog cannot be applied.
+     * @throws IOException if the catalog source cannot be read.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<SectorReloadResponse> reload() throws IOException {
+        try {
+            return ResponseEntity.ok(reloader.reload());
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Sector catalog reload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
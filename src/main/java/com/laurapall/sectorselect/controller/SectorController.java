@@ -1,10 +1,20 @@
 package com.laurapall.sectorselect.controller;
 
+import com.laurapall.sectorselect.dto.SectorNodeDto;
+import com.laurapall.sectorselect.dto.SectorRow;
+import com.laurapall.sectorselect.dto.SectorSearchResultDto;
+import com.laurapall.sectorselect.dto.SectorStatsDto;
 import com.laurapall.sectorselect.dto.SectorTreeDto;
+import com.laurapall.sectorselect.service.SectorPopularityCounters;
 import com.laurapall.sectorselect.service.SectorService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -12,13 +22,16 @@ import java.util.List;
 @RequestMapping("/api/sectors")
 public class SectorController {
     private final SectorService service;
+    private final SectorPopularityCounters popularityCounters;
 
     /**
      * Controller constructor.
      * @param service sector service.
+     * @param popularityCounters live submission counts per sector.
      */
-    public SectorController(SectorService service) {
+    public SectorController(SectorService service, SectorPopularityCounters popularityCounters) {
         this.service = service;
+        this.popularityCounters = popularityCounters;
     }
 
     /**
@@ -29,5 +42,83 @@ public class SectorController {
     public List<SectorTreeDto> getSectorTree() {
         return service.getSectorTree();
     }
-}
 
+    /**
+     * Stream sectors hierarchy tree without building the response in memory.
+     * @return streaming body with the same JSON as the tree endpoint.
+     */
+    @GetMapping("/tree/stream")
+    public ResponseEntity<StreamingResponseBody> streamSectorTree() {
+        StreamingResponseBody body = service::writeSectorTree;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Get root sectors with child counts.
+     * @param depth number of levels to return.
+     * @return root sectors as SectorNodeDtos in a list.
+     */
+    @GetMapping("/roots")
+    public List<SectorNodeDto> getRootSectors(@RequestParam(defaultValue = "1") int depth) {
+        return service.getRootSectors(depth);
+    }
+
+    /**
+     * Get children of a sector with child counts.
+     * @param id parent sector id.
+     * @param depth number of levels to return.
+     * @return children as SectorNodeDtos, or not found if sector does not exist.
+     */
+    @GetMapping("/{id}/children")
+    public ResponseEntity<List<SectorNodeDto>> getChildSectors(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "1") int depth) {
+        return service.getChildSectors(id, depth)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get all descendants of a sector.
+     * @param id sector id.
+     * @return descendants in pre-order, or not found if sector does not exist.
+     */
+    @GetMapping("/{id}/descendants")
+    public ResponseEntity<List<SectorRow>> getDescendants(@PathVariable Long id) {
+        return service.getDescendants(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get all ancestors of a sector.
+     * @param id sector id.
+     * @return ancestors starting from the root, or not found if sector does not exist.
+     */
+    @GetMapping("/{id}/ancestors")
+    public ResponseEntity<List<SectorRow>> getAncestors(@PathVariable Long id) {
+        return service.getAncestors(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Search sectors by name.
+     * @param q search text.
+     * @param limit maximum number of results.
+     * @return matching sectors with their ancestor names.
+     */
+    @GetMapping("/search")
+    public List<SectorSearchResultDto> searchSectors(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        return service.searchSectors(q, limit);
+    }
+
+    /**
+     * Get how many submissions selected each sector, directly and including its sub-sectors.
+     * @return counts of all sectors selected at least once, in tree order.
+     */
+    @GetMapping("/stats")
+    public List<SectorStatsDto> getStats() {
+        return popularityCounters.getStats();
+    }
+}
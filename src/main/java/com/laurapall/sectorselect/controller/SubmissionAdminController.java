@@ -0,0 +1,81 @@
+package com.laurapall.sectorselect.controller;
+
+import com.laurapall.sectorselect.dto.SubmissionImportStatus;
+import com.laurapall.sectorselect.dto.SubmissionRateLimitStats;
+import com.laurapall.sectorselect.service.SubmissionImporter;
+import com.laurapall.sectorselect.service.SubmissionRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/submission/admin")
+public class SubmissionAdminController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionAdminController.class);
+    private final SubmissionImporter importer;
+    private final SubmissionRateLimiter rateLimiter;
+
+    /**
+     * Controller constructor.
+     * @param importer submission importer.
+     * @param rateLimiter submission rate limiter.
+     */
+    public SubmissionAdminController(SubmissionImporter importer, SubmissionRateLimiter rateLimiter) {
+        this.importer = importer;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Start importing an NDJSON file from the import directory.
+     * @param file file name inside the import directory.
+     * @return accepted with the import status to poll, bad request if the file cannot be used,
+     * or conflict if another import is running.
+     * @throws IOException if the rejects file cannot be created.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<SubmissionImportStatus> startImport(@RequestParam String file) throws IOException {
+        try {
+            SubmissionImportStatus status = importer.start(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/submission/admin/import/" + status.getId()))
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Submission import rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Submission import rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Get progress of an import.
+     * @param id import id.
+     * @return import status, or not found if the import is unknown.
+     */
+    @GetMapping("/import/{id}")
+    public ResponseEntity<SubmissionImportStatus> importStatus(@PathVariable String id) {
+        return importer.status(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get how many submissions the rate limiter let through and turned away since startup.
+     * @return rate limiter counters.
+     */
+    @GetMapping("/rate-limit")
+    public SubmissionRateLimitStats rateLimitStats() {
+        return rateLimiter.getStats();
+    }
+}
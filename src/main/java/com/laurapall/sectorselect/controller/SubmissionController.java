@@ -1,45 +1,266 @@
 package com.laurapall.sectorselect.controller;
 
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionDto;
+import com.laurapall.sectorselect.dto.SubmissionIdPageDto;
+import com.laurapall.sectorselect.dto.SubmissionPageDto;
 import com.laurapall.sectorselect.dto.SubmissionRequest;
 import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.dto.SubmissionTicketResponse;
+import com.laurapall.sectorselect.service.SubmissionExporter;
+import com.laurapall.sectorselect.service.SubmissionIdempotencyCache;
+import com.laurapall.sectorselect.service.SubmissionSectorIndex;
 import com.laurapall.sectorselect.service.SubmissionService;
+import com.laurapall.sectorselect.service.SubmissionWriteQueue;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/submission")
 public class SubmissionController {
 
+    /**
+     * Seconds a client is asked to wait before retrying when the write queue is full.
+     */
+    static final String QUEUE_FULL_RETRY_AFTER = "1";
+
+    /**
+     * Header a client sets to make retries of the same submit safe.
+     */
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final SubmissionService service;
+    private final SubmissionWriteQueue writeQueue;
+    private final SubmissionIdempotencyCache idempotencyCache;
+    private final SubmissionSectorIndex sectorIndex;
+    private final SubmissionExporter exporter;
 
     /**
      * Controller constructor.
      * @param service submission service.
+     * @param writeQueue write-behind queue for async submissions.
+     * @param idempotencyCache responses remembered per idempotency key.
+     * @param sectorIndex sector to submission index.
+     * @param exporter streams all submissions as a file.
+     */
+    public SubmissionController(SubmissionService service, SubmissionWriteQueue writeQueue,
+                                SubmissionIdempotencyCache idempotencyCache, SubmissionSectorIndex sectorIndex,
+                                SubmissionExporter exporter) {
+        this.service = service;
+        this.writeQueue = writeQueue;
+        this.idempotencyCache = idempotencyCache;
+        this.sectorIndex = sectorIndex;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Get a saved submission.
+     * @param id submission id.
+     * @return submission with its version as ETag, or not found.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SubmissionDto> getSubmission(@PathVariable Long id) {
+        return service.getSubmission(id)
+                .map(submission -> withETag(ResponseEntity.ok(), submission.version()).body(submission))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get saved submissions page by page, ordered by id.
+     * @param after id of the last submission of the previous page, omitted for the first page.
+     * @param limit maximum number of submissions per page.
+     * @return page of submissions.
      */
-    public SubmissionController(SubmissionService service) { this.service = service; }
+    @GetMapping
+    public SubmissionPageDto getSubmissions(@RequestParam(required = false) Long after,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        return service.getSubmissions(after, limit);
+    }
+
+    /**
+     * Stream all submissions as a file without building it in memory.
+     * @param format ndjson or csv.
+     * @param after export only submissions with a greater id, e.g. the last id of a broken off download.
+     * @return streaming body in id order, or bad request if the format is unknown.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(required = false) Long after) {
+        SubmissionExporter.Format exportFormat;
+        try {
+            exportFormat = SubmissionExporter.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> exporter.export(out, exportFormat, after);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("submissions." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Get ids of submissions that selected a sector, answered from the in-memory index.
+     * @param id sector id.
+     * @param includeDescendants whether to include submissions that selected any sector below it.
+     * @param after last id of the previous page, omitted for the first page.
+     * @param limit maximum number of ids per page.
+     * @return page of submission ids, not found if the sector does not exist,
+     * or service unavailable while the index is still being built.
+     */
+    @GetMapping("/by-sector/{id}")
+    public ResponseEntity<SubmissionIdPageDto> getSubmissionsBySector(@PathVariable Long id,
+                                                                      @RequestParam(defaultValue = "false")
+                                                                      boolean includeDescendants,
+                                                                      @RequestParam(required = false) Long after,
+                                                                      @RequestParam(defaultValue = "1000") int limit) {
+        if (!sectorIndex.isReady()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return sectorIndex.findSubmissions(id, includeDescendants, after, limit)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
     /**
      * Create new submission or edit previous submission.
+     * With an idempotency key, a repeated request gets the response of the first one and nothing is saved again.
+     * Saved submissions carry their version as ETag; an edit sent with If-Match is only applied to that version.
      * @param request submission request with data.
-     * @return response entity.
+     * @param idempotencyKey optional key identifying this submit attempt.
+     * @param ifMatch optional ETag of the version being edited.
+     * @return response entity, unprocessable entity if the key was used for another request,
+     * or precondition failed if the submission was changed in the meantime.
      */
     @PostMapping("/submit")
-    public ResponseEntity<SubmissionResponse> submit(@Valid @RequestBody SubmissionRequest request) {
+    public ResponseEntity<SubmissionResponse> submit(@Valid @RequestBody SubmissionRequest request,
+                                                     @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                     String idempotencyKey,
+                                                     @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                                     String ifMatch) {
+        if (idempotencyKey == null) return save(request, ifMatch);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > SubmissionIdempotencyCache.MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        return idempotencyCache.execute(idempotencyKey, request, () -> save(request, ifMatch));
+    }
+
+    private ResponseEntity<SubmissionResponse> save(SubmissionRequest request, String ifMatch) {
         if (request.getEditSubmissionId() == null) {
             SubmissionResponse response = service.createSubmission(request);
 
             if (!response.isValid()) return ResponseEntity.badRequest().body(response);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return withETag(ResponseEntity.status(HttpStatus.CREATED), response.getVersion()).body(response);
         } else {
-            SubmissionResponse response = service.updateCurrentSubmission(request);
+            Long expectedVersion;
+            SubmissionResponse response;
+            try {
+                expectedVersion = parseETag(ifMatch);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            try {
+                response = service.updateCurrentSubmission(request, expectedVersion);
+            } catch (OptimisticLockingFailureException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
 
             if (!response.isValid()) return ResponseEntity.badRequest().body(response);
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            return withETag(ResponseEntity.ok(), response.getVersion()).body(response);
+        }
+    }
+
+    /**
+     * Read the expected version from an If-Match header.
+     * @param ifMatch header value, e.g. "3", W/"3" or *.
+     * @return expected version, or null if any version may be replaced.
+     * @throws IllegalArgumentException if the header is not a submission ETag, so it can never match.
+     */
+    static Long parseETag(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) tag = tag.substring(2);
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new IllegalArgumentException("Not a submission ETag: " + ifMatch);
+        }
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, Long version) {
+        return version == null ? builder : builder.eTag("\"" + version + "\"");
+    }
+
+    /**
+     * Create or edit many submissions at once. Each request is validated on its own.
+     * @param requests submission requests.
+     * @return one result per request, or bad request if the batch is empty or too large.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<SubmissionBatchResponse> submitBatch(@RequestBody List<SubmissionRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > SubmissionService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.createSubmissions(requests));
+    }
+
+    /**
+     * Validate a submission and queue it to be saved in the background.
+     * @param request submission request with data.
+     * @return accepted with a ticket to poll, bad request if invalid or a sector id is unknown,
+     *         or too many requests if the queue is full.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<SubmissionTicketResponse> submitAsync(@Valid @RequestBody SubmissionRequest request) {
+        List<String> errors = service.validate(request);
+        if (!errors.isEmpty()) {
+            SubmissionResponse invalid = new SubmissionResponse();
+            invalid.setValid(false);
+            invalid.setErrors(errors);
+            SubmissionTicketResponse response = new SubmissionTicketResponse();
+            response.setState(SubmissionTicketResponse.State.FAILED);
+            response.setResult(invalid);
+            return ResponseEntity.badRequest().body(response);
         }
+
+        Optional<String> ticket = writeQueue.enqueue(request);
+        if (ticket.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, QUEUE_FULL_RETRY_AFTER)
+                    .build();
+        }
+        SubmissionTicketResponse response = new SubmissionTicketResponse();
+        response.setTicket(ticket.get());
+        response.setState(SubmissionTicketResponse.State.QUEUED);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/submission/status/" + ticket.get()))
+                .body(response);
+    }
+
+    /**
+     * Get the outcome of an async submission.
+     * @param ticket ticket returned by the async endpoint.
+     * @return ticket state, or not found if ticket is unknown or expired.
+     */
+    @GetMapping("/status/{ticket}")
+    public ResponseEntity<SubmissionTicketResponse> getStatus(@PathVariable String ticket) {
+        return writeQueue.status(ticket)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
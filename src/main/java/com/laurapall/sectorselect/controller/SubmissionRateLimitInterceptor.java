@@ -0,0 +1,75 @@
+package com.laurapall.sectorselect.controller;
+
+import com.laurapall.sectorselect.service.SubmissionRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns away submissions over the per client rate or the global concurrency limit with 429 and Retry-After,
+ * before the request body is read and before any transaction starts.
+ * Clients are told apart by their remote address; behind a proxy, set server.forward-headers-strategy
+ * so that it is the address of the client and not of the proxy.
+ */
+@Component
+public class SubmissionRateLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * Retry-After in seconds when too many submissions are in progress.
+     */
+    static final String BUSY_RETRY_AFTER = "1";
+
+    private static final String ENTERED = SubmissionRateLimitInterceptor.class.getName() + ".entered";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionRateLimitInterceptor.class);
+
+    private final SubmissionRateLimiter limiter;
+
+    /**
+     * Interceptor constructor.
+     * @param limiter submission rate limiter.
+     */
+    public SubmissionRateLimitInterceptor(SubmissionRateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String client = request.getRemoteAddr();
+        long waitNanos = limiter.acquire(client);
+        if (waitNanos != SubmissionRateLimiter.ALLOWED) {
+            long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            LOGGER.debug("Submission from {} over rate limit, retry after {} s", client, seconds);
+            reject(response, Long.toString(seconds));
+            return false;
+        }
+        if (!limiter.tryEnter()) {
+            // The request was not processed, so it does not count against the client's rate.
+            limiter.refund(client);
+            LOGGER.debug("Submission from {} shed, too many in progress", client);
+            reject(response, BUSY_RETRY_AFTER);
+            return false;
+        }
+        request.setAttribute(ENTERED, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(ENTERED) == null) return;
+        request.removeAttribute(ENTERED);
+        limiter.exit();
+    }
+
+    private static void reject(HttpServletResponse response, String retryAfter) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+    }
+}
@@ -0,0 +1,24 @@
+package com.laurapall.sectorselect.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final SubmissionRateLimitInterceptor rateLimitInterceptor;
+
+    /**
+     * Configuration constructor.
+     * @param rateLimitInterceptor interceptor limiting the endpoints that save or queue submissions.
+     */
+    public WebConfig(SubmissionRateLimitInterceptor rateLimitInterceptor) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/api/submission/submit", "/api/submission/batch", "/api/submission/async");
+    }
+}
@@ -0,0 +1,31 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * One problem found while validating a sector catalog.
+ * @param type kind of problem.
+ * @param sectorId id of the affected sector.
+ * @param parentId parent id given for the sector, null if it had none.
+ */
+public record SectorCatalogIssue(Type type, long sectorId, Long parentId) {
+
+    /**
+     * Kinds of catalog problems. Errors make the catalog unusable as given, warnings do not.
+     */
+    public enum Type {
+        DUPLICATE_ID(true),
+        CYCLE(true),
+        UNDER_CYCLE(true),
+        ORPHAN(false),
+        DEPTH_OUTLIER(false);
+
+        private final boolean error;
+
+        Type(boolean error) {
+            this.error = error;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+}
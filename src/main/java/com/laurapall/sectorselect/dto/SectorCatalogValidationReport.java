@@ -0,0 +1,58 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of validating a sector catalog: issue counts per type and a capped sample of issues.
+ */
+@Getter
+public class SectorCatalogValidationReport {
+    private final int sectorCount;
+    private final int maxDepth;
+    private final long elapsedMillis;
+    private final Map<SectorCatalogIssue.Type, Integer> counts;
+    private final List<SectorCatalogIssue> issues;
+
+    public SectorCatalogValidationReport(int sectorCount, int maxDepth, long elapsedMillis,
+                                         Map<SectorCatalogIssue.Type, Integer> counts,
+                                         List<SectorCatalogIssue> issues) {
+        this.sectorCount = sectorCount;
+        this.maxDepth = maxDepth;
+        this.elapsedMillis = elapsedMillis;
+        this.counts = new EnumMap<>(counts);
+        this.issues = List.copyOf(issues);
+    }
+
+    /**
+     * Get number of issues of a type, including those left out of the sample.
+     * @param type issue type.
+     * @return issue count.
+     */
+    public int count(SectorCatalogIssue.Type type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    /**
+     * Check if any issue makes the catalog unusable as given.
+     * @return true if there are errors, else false.
+     */
+    public boolean hasErrors() {
+        return counts.entrySet().stream().anyMatch(e -> e.getKey().isError() && e.getValue() > 0);
+    }
+
+    /**
+     * Short one line description of the report.
+     * @return summary text.
+     */
+    public String summary() {
+        return String.format("%d sectors, max depth %d, duplicates %d, cycles %d, under cycles %d, orphans %d, "
+                        + "depth outliers %d, validated in %d ms",
+                sectorCount, maxDepth, count(SectorCatalogIssue.Type.DUPLICATE_ID), count(SectorCatalogIssue.Type.CYCLE),
+                count(SectorCatalogIssue.Type.UNDER_CYCLE), count(SectorCatalogIssue.Type.ORPHAN),
+                count(SectorCatalogIssue.Type.DEPTH_OUTLIER), elapsedMillis);
+    }
+}
@@ -0,0 +1,9 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * Number of submissions counted for a sector.
+ * @param sectorId sector id.
+ * @param count number of submissions.
+ */
+public record SectorCount(Long sectorId, Long count) {
+}
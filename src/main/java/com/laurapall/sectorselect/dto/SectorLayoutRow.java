@@ -0,0 +1,15 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * Stored sector row including the derived hierarchy columns.
+ * @param id sector id.
+ * @param name sector name.
+ * @param level hierarchy level.
+ * @param parentId parent sector id, null for root sectors.
+ * @param path materialized path.
+ * @param lft nested set left bound.
+ * @param rgt nested set right bound.
+ */
+public record SectorLayoutRow(Long id, String name, Integer level, Long parentId, String path, Integer lft,
+                              Integer rgt) {
+}
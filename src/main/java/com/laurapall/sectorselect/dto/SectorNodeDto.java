@@ -0,0 +1,21 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class SectorNodeDto {
+    private Long id;
+    private String name;
+    private Integer level;
+    private long childCount;
+    private List<SectorNodeDto> children = new ArrayList<>();
+
+    public SectorNodeDto(Long id, String name, Integer level, long childCount) {
+        this.id = id; this.name = name; this.level = level; this.childCount = childCount;
+    }
+}
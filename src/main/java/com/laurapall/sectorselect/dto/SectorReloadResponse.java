@@ -0,0 +1,16 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SectorReloadResponse {
+    private int sectorCount;
+    private int added;
+    private int renamed;
+    private int moved;
+    private int relaid;
+    private int removed;
+    private long durationMillis;
+}
@@ -0,0 +1,11 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * Flat sector projection with the parent id instead of the parent entity.
+ * @param id sector id.
+ * @param name sector name.
+ * @param level hierarchy level.
+ * @param parentId parent sector id, null for root sectors.
+ */
+public record SectorRow(Long id, String name, Integer level, Long parentId) {
+}
@@ -0,0 +1,19 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class SectorSearchResultDto {
+    private Long id;
+    private String name;
+    private Integer level;
+    private List<String> path;
+
+    public SectorSearchResultDto(Long id, String name, Integer level, List<String> path) {
+        this.id = id; this.name = name; this.level = level; this.path = path;
+    }
+}
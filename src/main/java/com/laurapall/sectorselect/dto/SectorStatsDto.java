@@ -0,0 +1,18 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SectorStatsDto {
+    private Long id;
+    private String name;
+    private Integer level;
+    private long selected;
+    private long selectedInSubtree;
+
+    public SectorStatsDto(Long id, String name, Integer level, long selected, long selectedInSubtree) {
+        this.id = id; this.name = name; this.level = level; this.selected = selected; this.selectedInSubtree = selectedInSubtree;
+    }
+}
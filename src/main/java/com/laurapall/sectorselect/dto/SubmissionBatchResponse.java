@@ -0,0 +1,14 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class SubmissionBatchResponse {
+    private int accepted;
+    private int rejected;
+    private List<SubmissionResponse> results;
+}
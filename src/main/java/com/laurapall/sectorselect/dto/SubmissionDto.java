@@ -0,0 +1,13 @@
+package com.laurapall.sectorselect.dto;
+
+import java.util.List;
+
+/**
+ * Flat read model of a saved submission.
+ * @param id submission id.
+ * @param name name of user.
+ * @param version version to send as If-Match when editing.
+ * @param sectorIds selected sector ids in ascending order.
+ */
+public record SubmissionDto(Long id, String name, Long version, List<Long> sectorIds) {
+}
@@ -0,0 +1,12 @@
+package com.laurapall.sectorselect.dto;
+
+import java.util.List;
+
+/**
+ * One page of submission ids matching a query.
+ * @param total number of matching submissions over all pages.
+ * @param submissionIds ids on this page in ascending order.
+ * @param nextAfter value to pass as after for the next page, null on the last page.
+ */
+public record SubmissionIdPageDto(long total, List<Long> submissionIds, Long nextAfter) {
+}
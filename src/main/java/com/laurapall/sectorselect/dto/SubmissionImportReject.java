@@ -0,0 +1,11 @@
+package com.laurapall.sectorselect.dto;
+
+import java.util.List;
+
+/**
+ * One line of an import file that was not saved.
+ * @param line line number, starting from 1.
+ * @param errors reasons.
+ */
+public record SubmissionImportReject(long line, List<String> errors) {
+}
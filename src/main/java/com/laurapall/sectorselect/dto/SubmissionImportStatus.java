@@ -0,0 +1,33 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class SubmissionImportStatus {
+
+    /**
+     * Processing state of an import.
+     */
+    public enum State {
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String id;
+    private String file;
+    private State state;
+    private long linesRead;
+    private long written;
+    private long rejected;
+    private long elapsedMillis;
+    private long linesPerSecond;
+    private long writtenPerSecond;
+    private String rejectsFile;
+    private List<SubmissionImportReject> sampleRejects;
+    private String error;
+}
@@ -0,0 +1,11 @@
+package com.laurapall.sectorselect.dto;
+
+import java.util.List;
+
+/**
+ * One page of submissions ordered by id.
+ * @param items submissions on this page.
+ * @param nextAfter value to pass as after for the next page, null on the last page.
+ */
+public record SubmissionPageDto(List<SubmissionDto> items, Long nextAfter) {
+}
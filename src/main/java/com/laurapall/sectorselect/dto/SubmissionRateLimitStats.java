@@ -0,0 +1,14 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SubmissionRateLimitStats {
+    private long allowed;
+    private long rejectedByRate;
+    private long rejectedByConcurrency;
+    private int inFlight;
+    private int maxConcurrent;
+}
@@ -21,4 +21,9 @@ public class SubmissionRequest {
     private Boolean agree;
 
     private Long editSubmissionId;
+
+    /**
+     * Version of the edited submission the client started from, or null to overwrite any version.
+     */
+    private Long version;
 }
@@ -12,4 +12,7 @@ public class SubmissionResponse {
     private Long id;
     private String name;
     private List<Long> sectorIds;
+    private Long version;
+    private List<String> errors;
+    private List<Long> unknownSectorIds;
 }
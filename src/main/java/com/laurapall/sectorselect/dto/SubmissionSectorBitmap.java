@@ -0,0 +1,9 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * Sectors of one submission stored as a serialized bitmap.
+ * @param submissionId submission id.
+ * @param sectorBitmap serialized bitmap of sector ids.
+ */
+public record SubmissionSectorBitmap(Long submissionId, byte[] sectorBitmap) {
+}
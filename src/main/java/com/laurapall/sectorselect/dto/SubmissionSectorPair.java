@@ -0,0 +1,9 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * One selected sector of a submission.
+ * @param submissionId submission id.
+ * @param sectorId sector id.
+ */
+public record SubmissionSectorPair(Long submissionId, Long sectorId) {
+}
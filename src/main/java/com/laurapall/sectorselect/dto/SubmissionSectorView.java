@@ -0,0 +1,18 @@
+package com.laurapall.sectorselect.dto;
+
+/**
+ * One row of a submission joined with one of its sectors, read by a native query.
+ * A submission without sectors has a single row with a null sector id. A submission with a sector
+ * bitmap also has a single row, with the bitmap set and no sector id.
+ */
+public interface SubmissionSectorView {
+    Long getId();
+
+    String getName();
+
+    Long getVersion();
+
+    Long getSectorId();
+
+    byte[] getSectorBitmap();
+}
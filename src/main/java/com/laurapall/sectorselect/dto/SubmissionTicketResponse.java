@@ -0,0 +1,23 @@
+package com.laurapall.sectorselect.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SubmissionTicketResponse {
+
+    /**
+     * Processing state of a queued submission.
+     */
+    public enum State {
+        QUEUED,
+        DONE,
+        FAILED
+    }
+
+    private String ticket;
+    private State state;
+    private SubmissionResponse result;
+    private String error;
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -16,7 +17,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_sector_parent", columnList = "parent_id"),
+        @Index(name = "idx_sector_lft_rgt", columnList = "lft, rgt"),
+        @Index(name = "idx_sector_path", columnList = "path")
+})
 @Getter
 @Setter
 public class Sector {
@@ -46,6 +51,22 @@ public class Sector {
     @Column(nullable = false)
     private Integer level;
 
+    /**
+     * Materialized path of ids from the root, e.g. "/1/6/342/".
+     */
+    @Column(length = 1024)
+    private String path;
+
+    /**
+     * Nested set left bound, all descendants have lft between this lft and rgt.
+     */
+    private Integer lft;
+
+    /**
+     * Nested set right bound.
+     */
+    private Integer rgt;
+
     /**
      * List with relevant children sectors.
      */
@@ -9,7 +9,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
 import lombok.Setter;
@@ -23,10 +25,11 @@ import java.util.Set;
 @Setter
 public class Submission {
     /**
-     * ID of submission.
+     * ID of submission. Taken from a pooled sequence, so inserts can be sent in JDBC batches.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "submission_seq")
+    @SequenceGenerator(name = "submission_seq", sequenceName = "submission_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -45,4 +48,17 @@ public class Submission {
             inverseJoinColumns = @JoinColumn(name = "sector_id"))
     private Set<Sector> sectors = new LinkedHashSet<>();
 
+    /**
+     * Selected sector ids as a serialized compressed bitmap. When set, it is the selection and the
+     * join rows are not read. Written in the dual and bitmap sector storage modes.
+     */
+    @Column(name = "sector_bitmap", length = 65_535)
+    private byte[] sectorBitmap;
+
+    /**
+     * Version for optimistic locking. Every update checks and increments it in the same statement.
+     */
+    @Version
+    private Long version;
+
 }
@@ -1,9 +1,46 @@
 package com.laurapall.sectorselect.repository;
 
+import com.laurapall.sectorselect.dto.SectorLayoutRow;
+import com.laurapall.sectorselect.dto.SectorRow;
 import com.laurapall.sectorselect.entity.Sector;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface SectorRepository extends JpaRepository<Sector, Long> {
+
+    /**
+     * Get all sectors as flat rows in a single statement.
+     * Ordered by the stored nested set bounds, so a catalog built from the rows keeps the stored sibling order.
+     * @return sector rows in stored pre-order, rows without bounds last by id.
+     */
+    @Query("select new com.laurapall.sectorselect.dto.SectorRow(s.id, s.name, s.level, p.id) "
+            + "from Sector s left join s.parent p order by s.lft nulls last, s.id")
+    List<SectorRow> findAllRows();
+
+    /**
+     * Get all sectors with their stored path and nested set bounds in a single statement.
+     * @return sector layout rows ordered by id.
+     */
+    @Query("select new com.laurapall.sectorselect.dto.SectorLayoutRow(s.id, s.name, s.level, p.id, s.path, s.lft, s.rgt) "
+            + "from Sector s left join s.parent p order by s.id")
+    List<SectorLayoutRow> findAllLayoutRows();
+
+    /**
+     * Get sectors whose nested set left bound is in range, i.e. a whole subtree when given a sector's lft and rgt.
+     * @param lft lower bound, inclusive.
+     * @param rgt upper bound, inclusive.
+     * @return sectors in pre-order.
+     */
+    List<Sector> findByLftBetweenOrderByLft(Integer lft, Integer rgt);
+
+    /**
+     * Get sectors whose materialized path starts with the prefix, i.e. a whole subtree when given a sector's path.
+     * @param pathPrefix path prefix such as "/1/6/".
+     * @return sectors in pre-order.
+     */
+    List<Sector> findByPathStartingWithOrderByLft(String pathPrefix);
 }
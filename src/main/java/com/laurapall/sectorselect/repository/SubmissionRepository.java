@@ -1,9 +1,171 @@
 package com.laurapall.sectorselect.repository;
 
+import com.laurapall.sectorselect.dto.SectorCount;
+import com.laurapall.sectorselect.dto.SubmissionSectorBitmap;
+import com.laurapall.sectorselect.dto.SubmissionSectorPair;
+import com.laurapall.sectorselect.dto.SubmissionSectorView;
 import com.laurapall.sectorselect.entity.Submission;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 @Repository
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
+
+    /**
+     * JDBC fetch size for streamed queries, so rows arrive in steady chunks instead of all at once.
+     */
+    int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Count submissions with at least one sector inside a nested set range.
+     * Only submissions whose sectors are stored as join rows are counted.
+     * @param lft subtree root lft.
+     * @param rgt subtree root rgt.
+     * @return number of distinct submissions.
+     */
+    @Query("select count(distinct s.id) from Submission s join s.sectors sec "
+            + "where s.sectorBitmap is null and sec.lft between :lft and :rgt")
+    long countBySectorSubtree(@Param("lft") Integer lft, @Param("rgt") Integer rgt);
+
+    /**
+     * Get those of the given sectors that are selected in at least one submission.
+     * Only join rows are searched; see forEachSectorBitmap for submissions stored as a bitmap.
+     * @param sectorIds sector ids to check.
+     * @return referenced sector ids.
+     */
+    @Query("select distinct sec.id from Submission s join s.sectors sec "
+            + "where s.sectorBitmap is null and sec.id in :sectorIds")
+    List<Long> findReferencedSectorIds(@Param("sectorIds") Collection<Long> sectorIds);
+
+    /**
+     * Count submissions per selected sector, for submissions whose sectors are stored as join rows.
+     * @return number of submissions that selected each sector, only sectors with at least one.
+     */
+    @Query("select new com.laurapall.sectorselect.dto.SectorCount(sec.id, count(s.id)) "
+            + "from Submission s join s.sectors sec where s.sectorBitmap is null group by sec.id")
+    List<SectorCount> countPerSector();
+
+    /**
+     * Count distinct submissions per sector subtree, using the nested set bounds, for submissions
+     * whose sectors are stored as join rows.
+     * @return number of submissions that selected each sector or any sector below it, only sectors with at least one.
+     */
+    @Query("select new com.laurapall.sectorselect.dto.SectorCount(a.id, count(distinct s.id)) "
+            + "from Submission s join s.sectors sec, Sector a "
+            + "where s.sectorBitmap is null and sec.lft between a.lft and a.rgt group by a.id")
+    List<SectorCount> countPerSectorSubtree();
+
+    /**
+     * Stream all selected sectors of submissions whose sectors are stored as join rows.
+     * Must be consumed inside a transaction.
+     * @return submission and sector id pairs ordered by submission id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select new com.laurapall.sectorselect.dto.SubmissionSectorPair(s.id, sec.id) "
+            + "from Submission s join s.sectors sec where s.sectorBitmap is null order by s.id")
+    Stream<SubmissionSectorPair> streamAllSectorPairs();
+
+    /**
+     * Get one submission with its sector ids in a single query.
+     * @param id submission id.
+     * @return one row per selected sector, ordered by sector id, or a single row with the sector bitmap,
+     * empty if submission does not exist.
+     */
+    @Query(value = "select s.id as id, s.name as name, s.version as version, ss.sector_id as sectorId, "
+            + "s.sector_bitmap as sectorBitmap from submission s "
+            + "left join submission_sectors ss on ss.submission_id = s.id and s.sector_bitmap is null "
+            + "where s.id = :id order by ss.sector_id", nativeQuery = true)
+    List<SubmissionSectorView> findSectorRowsById(@Param("id") Long id);
+
+    /**
+     * Get a page of submissions after a given id, with their sector ids, in a single query.
+     * The page is picked by seeking on the primary key, so a deep page costs the same as the first one.
+     * @param after last id of the previous page, 0 for the first page.
+     * @param limit maximum number of submissions.
+     * @return one row per submission and selected sector, ordered by submission id and sector id.
+     */
+    @Query(value = "select s.id as id, s.name as name, s.version as version, ss.sector_id as sectorId, "
+            + "s.sector_bitmap as sectorBitmap from (select id, name, version, sector_bitmap from submission "
+            + "where id > :after order by id limit :limit) s "
+            + "left join submission_sectors ss on ss.submission_id = s.id and s.sector_bitmap is null "
+            + "order by s.id, ss.sector_id", nativeQuery = true)
+    List<SubmissionSectorView> findSectorRowsAfter(@Param("after") long after, @Param("limit") int limit);
+
+    /**
+     * Stream all submissions after a given id with their sectors, for export. Must be consumed inside a transaction.
+     * @param after stream only submissions with a greater id, 0 for all.
+     * @return one row per submission and selected sector, or a single row with the sector bitmap,
+     * ordered by submission id and sector id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query(value = "select s.id as id, s.name as name, s.version as version, ss.sector_id as sectorId, "
+            + "s.sector_bitmap as sectorBitmap from submission s "
+            + "left join submission_sectors ss on ss.submission_id = s.id and s.sector_bitmap is null "
+            + "where s.id > :after order by s.id, ss.sector_id", nativeQuery = true)
+    Stream<SubmissionSectorView> streamExportRows(@Param("after") long after);
+
+    /**
+     * Get a page of submissions whose sectors are stored as a bitmap.
+     * @param after last id of the previous page, 0 for the first page.
+     * @param limit maximum number of rows.
+     * @return submission ids and bitmaps ordered by id.
+     */
+    @Query("select new com.laurapall.sectorselect.dto.SubmissionSectorBitmap(s.id, s.sectorBitmap) "
+            + "from Submission s where s.id > :after and s.sectorBitmap is not null order by s.id")
+    List<SubmissionSectorBitmap> findSectorBitmapsAfter(@Param("after") long after, Limit limit);
+
+    /**
+     * Visit every submission whose sectors are stored as a bitmap, reading STREAM_FETCH_SIZE rows at a time.
+     * Together with the join row queries above, this covers every selection exactly once.
+     * @param action called with each submission id and bitmap, in id order.
+     */
+    default void forEachSectorBitmap(Consumer<SubmissionSectorBitmap> action) {
+        long after = 0;
+        while (true) {
+            List<SubmissionSectorBitmap> page = findSectorBitmapsAfter(after, Limit.of(STREAM_FETCH_SIZE));
+            page.forEach(action);
+            if (page.size() < STREAM_FETCH_SIZE) return;
+            after = page.get(page.size() - 1).submissionId();
+        }
+    }
+
+    /**
+     * Get ids of submissions not yet stored as the table mode stores them: those with a sector bitmap.
+     * @param after last id of the previous chunk, 0 for the first chunk.
+     * @param limit maximum number of ids.
+     * @return submission ids in ascending order.
+     */
+    @Query("select s.id from Submission s where s.id > :after and s.sectorBitmap is not null order by s.id")
+    List<Long> findIdsToMigrateToTable(@Param("after") long after, Limit limit);
+
+    /**
+     * Get ids of submissions not yet stored as the dual mode stores them: those without a bitmap or without join rows.
+     * @param after last id of the previous chunk, 0 for the first chunk.
+     * @param limit maximum number of ids.
+     * @return submission ids in ascending order.
+     */
+    @Query("select s.id from Submission s where s.id > :after "
+            + "and (s.sectorBitmap is null or s.sectors is empty) order by s.id")
+    List<Long> findIdsToMigrateToDual(@Param("after") long after, Limit limit);
+
+    /**
+     * Get ids of submissions not yet stored as the bitmap mode stores them: those without a bitmap or with join rows.
+     * @param after last id of the previous chunk, 0 for the first chunk.
+     * @param limit maximum number of ids.
+     * @return submission ids in ascending order.
+     */
+    @Query("select s.id from Submission s where s.id > :after "
+            + "and (s.sectorBitmap is null or s.sectors is not empty) order by s.id")
+    List<Long> findIdsToMigrateToBitmap(@Param("after") long after, Limit limit);
 }
@@ -0,0 +1,139 @@
+package com.laurapall.sectorselect.service;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes a set of sector ids as a serialized compressed bitmap, and runs set operations on decoded ones.
+ * Sector ids are stored as unsigned 32-bit values. The ids of a catalog are small and close together,
+ * so a typical selection fits in one array container and takes a few bytes per selected sector.
+ * The bytes use the portable RoaringBitmap format.
+ */
+public final class SectorBitmapCodec {
+
+    /**
+     * Largest sector id that can be stored in a bitmap.
+     */
+    public static final long MAX_SECTOR_ID = 0xFFFF_FFFFL;
+
+    private SectorBitmapCodec() {
+    }
+
+    /**
+     * Check if a sector id can be stored in a bitmap.
+     * @param sectorId sector id.
+     * @return true if id is between 0 and MAX_SECTOR_ID, else false.
+     */
+    public static boolean isEncodable(long sectorId) {
+        return sectorId >= 0 && sectorId <= MAX_SECTOR_ID;
+    }
+
+    /**
+     * Put sector ids into a bitmap.
+     * @param sectorIds sector ids.
+     * @return bitmap of the ids.
+     * @throws IllegalArgumentException if an id is null or out of range.
+     */
+    public static RoaringBitmap toBitmap(Collection<Long> sectorIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (Long id : sectorIds) {
+            if (id == null || !isEncodable(id)) {
+                throw new IllegalArgumentException("Sector id " + id + " cannot be stored in a bitmap");
+            }
+            bitmap.add((int) (long) id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Serialize sector ids.
+     * @param sectorIds sector ids.
+     * @return serialized bitmap.
+     * @throws IllegalArgumentException if an id is null or out of range.
+     */
+    public static byte[] encode(Collection<Long> sectorIds) {
+        RoaringBitmap bitmap = toBitmap(sectorIds);
+        bitmap.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        bitmap.serialize(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Deserialize a bitmap written by encode.
+     * @param bytes serialized bitmap.
+     * @return bitmap.
+     * @throws IllegalStateException if the bytes are not a valid bitmap.
+     */
+    public static RoaringBitmap decode(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try {
+            bitmap.deserialize(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Stored sector bitmap is corrupt", e);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get the sector ids of a bitmap.
+     * @param bitmap bitmap.
+     * @return sector ids in ascending order.
+     */
+    public static List<Long> toIds(RoaringBitmap bitmap) {
+        List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((int id) -> ids.add(Integer.toUnsignedLong(id)));
+        return ids;
+    }
+
+    /**
+     * Deserialize a bitmap straight to its sector ids.
+     * @param bytes serialized bitmap.
+     * @return sector ids in ascending order.
+     */
+    public static List<Long> decodeIds(byte[] bytes) {
+        return toIds(decode(bytes));
+    }
+
+    /**
+     * Check if a selection contains at least one of the given sectors.
+     * @param selection selected sectors.
+     * @param sectors sectors to look for.
+     * @return true if the sets intersect, else false.
+     */
+    public static boolean anyOf(RoaringBitmap selection, RoaringBitmap sectors) {
+        return RoaringBitmap.intersects(selection, sectors);
+    }
+
+    /**
+     * Check if a selection contains all of the given sectors.
+     * @param selection selected sectors.
+     * @param sectors sectors to look for.
+     * @return true if every sector is selected, else false.
+     */
+    public static boolean allOf(RoaringBitmap selection, RoaringBitmap sectors) {
+        return selection.contains(sectors);
+    }
+
+    /**
+     * Get a sector and all sectors below it as a bitmap, to test a selection with anyOf.
+     * @param catalog sector catalog.
+     * @param sectorId subtree root id.
+     * @return ids of the subtree, empty if the sector does not exist.
+     */
+    public static RoaringBitmap subtree(SectorCatalog catalog, long sectorId) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int index = catalog.indexOf(sectorId);
+        if (index == SectorCatalog.NONE) return bitmap;
+        for (int i = index; i < catalog.subtreeEnd(index); i++) {
+            if (isEncodable(catalog.id(i))) bitmap.add((int) catalog.id(i));
+        }
+        return bitmap;
+    }
+}
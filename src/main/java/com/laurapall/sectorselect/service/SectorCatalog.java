@@ -0,0 +1,528 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, read-only sector hierarchy stored as primitive arrays.
+ * Sectors are addressed by dense indexes that follow pre-order, so the subtree of a sector
+ * is the index range [index, subtreeEnd(index)) and roots are linked as siblings.
+ * Names are kept in one shared char buffer.
+ */
+public final class SectorCatalog {
+    /**
+     * Index value used when there is no parent, child or sibling.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Parent id value for sectors without a parent.
+     */
+    public static final long NO_PARENT = Long.MIN_VALUE;
+
+    private static final SectorCatalog EMPTY = new Builder().build();
+
+    private final long[] ids;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] subtreeEnd;
+    private final int[] level;
+    private final char[] names;
+    private final int[] nameOffsets;
+    private final int[] slots;
+    private final int orphanCount;
+    private final int droppedCount;
+
+    private SectorCatalog(long[] ids, int[] parent, int[] level, int[] subtreeEnd, char[] names, int[] nameOffsets,
+                          int orphanCount, int droppedCount) {
+        int size = ids.length;
+        this.ids = ids;
+        this.parent = parent;
+        this.level = level;
+        this.subtreeEnd = subtreeEnd;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.orphanCount = orphanCount;
+        this.droppedCount = droppedCount;
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        for (int i = 0; i < size; i++) {
+            firstChild[i] = i + 1 < subtreeEnd[i] ? i + 1 : NONE;
+            int after = subtreeEnd[i];
+            nextSibling[i] = after < size && parent[after] == parent[i] ? after : NONE;
+        }
+        this.slots = buildSlots(ids, size);
+    }
+
+    /**
+     * Get an empty catalog.
+     * @return catalog without sectors.
+     */
+    public static SectorCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build catalog from flat sector rows.
+     * @param rows sector rows.
+     * @return new catalog.
+     */
+    public static SectorCatalog of(List<SectorRow> rows) {
+        Builder builder = new Builder(rows.size());
+        for (SectorRow row : rows) {
+            builder.add(row.id(), row.parentId() == null ? NO_PARENT : row.parentId(), row.name());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Recreate a catalog from arrays that were taken from a built catalog, such as a stored snapshot.
+     * The arrays must already be in pre-order and are used as they are.
+     * @param ids sector ids.
+     * @param parent parent indexes.
+     * @param level sector levels.
+     * @param subtreeEnd exclusive subtree end indexes.
+     * @param names shared name buffer.
+     * @param nameOffsets name start offsets, one more than there are sectors.
+     * @param orphanCount orphan count of the original catalog.
+     * @param droppedCount dropped row count of the original catalog.
+     * @return restored catalog.
+     */
+    static SectorCatalog restore(long[] ids, int[] parent, int[] level, int[] subtreeEnd, char[] names,
+                                 int[] nameOffsets, int orphanCount, int droppedCount) {
+        return new SectorCatalog(ids, parent, level, subtreeEnd, names, nameOffsets, orphanCount, droppedCount);
+    }
+
+    /**
+     * Number of sectors in the catalog.
+     * @return sector count.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find the dense index of a sector.
+     * @param id sector id.
+     * @return index, or NONE if sector is unknown.
+     */
+    public int indexOf(long id) {
+        if (slots.length == 0) return NONE;
+        int mask = slots.length - 1;
+        for (int slot = mix(id) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (ids[index] == id) return index;
+        }
+        return NONE;
+    }
+
+    /**
+     * Check if sector is part of the catalog.
+     * @param id sector id.
+     * @return true if sector is known, else false.
+     */
+    public boolean contains(long id) {
+        return indexOf(id) != NONE;
+    }
+
+    /**
+     * @param index sector index.
+     * @return sector id.
+     */
+    public long id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index sector index.
+     * @return sector name.
+     */
+    public String name(int index) {
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index]);
+    }
+
+    /**
+     * @param index sector index.
+     * @return hierarchy level, starts at 0.
+     */
+    public int level(int index) {
+        return level[index];
+    }
+
+    /**
+     * @param index sector index.
+     * @return parent index, or NONE for roots.
+     */
+    public int parent(int index) {
+        return parent[index];
+    }
+
+    /**
+     * @param index sector index.
+     * @return first child index, or NONE for leaves.
+     */
+    public int firstChild(int index) {
+        return firstChild[index];
+    }
+
+    /**
+     * @param index sector index.
+     * @return next sibling index (next root for roots), or NONE.
+     */
+    public int nextSibling(int index) {
+        return nextSibling[index];
+    }
+
+    /**
+     * Index right after the last descendant of a sector.
+     * @param index sector index.
+     * @return exclusive end of the subtree range.
+     */
+    public int subtreeEnd(int index) {
+        return subtreeEnd[index];
+    }
+
+    /**
+     * Index of the first root sector.
+     * @return first root index, or NONE if catalog is empty.
+     */
+    public int firstRoot() {
+        return ids.length == 0 ? NONE : 0;
+    }
+
+    /**
+     * Count direct children of a sector.
+     * @param index sector index.
+     * @return number of children.
+     */
+    public int childCount(int index) {
+        int count = 0;
+        for (int child = firstChild[index]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Count root sectors.
+     * @return number of roots.
+     */
+    public int rootCount() {
+        int count = 0;
+        for (int root = firstRoot(); root != NONE; root = nextSibling[root]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Check if one sector lies in the subtree of another (a sector is in its own subtree).
+     * @param index sector index.
+     * @param ancestorIndex subtree root index.
+     * @return true if sector is inside the subtree, else false.
+     */
+    public boolean isInSubtree(int index, int ancestorIndex) {
+        return ancestorIndex <= index && index < subtreeEnd[ancestorIndex];
+    }
+
+    /**
+     * Get all descendants of a sector in pre-order.
+     * @param index sector index.
+     * @return descendant rows.
+     */
+    public List<SectorRow> descendants(int index) {
+        List<SectorRow> result = new ArrayList<>(subtreeEnd[index] - index - 1);
+        for (int i = index + 1; i < subtreeEnd[index]; i++) {
+            result.add(toRow(i));
+        }
+        return result;
+    }
+
+    /**
+     * Get all ancestors of a sector, starting from its root.
+     * @param index sector index.
+     * @return ancestor rows.
+     */
+    public List<SectorRow> ancestors(int index) {
+        SectorRow[] result = new SectorRow[level[index]];
+        int position = result.length;
+        for (int i = parent[index]; i != NONE; i = parent[i]) {
+            result[--position] = toRow(i);
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Nested set left bound of a sector, following from its pre-order position.
+     * @param index sector index.
+     * @return lft value, starts at 1.
+     */
+    public int lft(int index) {
+        return 2 * index - level[index] + 1;
+    }
+
+    /**
+     * Nested set right bound of a sector.
+     * @param index sector index.
+     * @return rgt value.
+     */
+    public int rgt(int index) {
+        return lft(index) + 2 * (subtreeEnd[index] - index) - 1;
+    }
+
+    /**
+     * Materialized path of ids from the root down to a sector, e.g. "/1/6/342/".
+     * @param index sector index.
+     * @return path.
+     */
+    public String path(int index) {
+        long[] chain = new long[level[index] + 1];
+        int position = chain.length;
+        for (int i = index; i != NONE; i = parent[i]) {
+            chain[--position] = ids[i];
+        }
+        StringBuilder path = new StringBuilder("/");
+        for (long id : chain) {
+            path.append(id).append('/');
+        }
+        return path.toString();
+    }
+
+    /**
+     * Create flat row for a sector.
+     * @param index sector index.
+     * @return sector row.
+     */
+    public SectorRow toRow(int index) {
+        int parentIndex = parent[index];
+        return new SectorRow(ids[index], name(index), level[index], parentIndex == NONE ? null : ids[parentIndex]);
+    }
+
+    /**
+     * Number of sectors whose parent was missing and which were promoted to roots.
+     * @return orphan count.
+     */
+    public int getOrphanCount() {
+        return orphanCount;
+    }
+
+    /**
+     * Number of input rows left out because of duplicate ids or parent cycles.
+     * @return dropped row count.
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Approximate heap used by the catalog arrays.
+     * @return size in bytes.
+     */
+    public long footprintBytes() {
+        long size = ids.length;
+        return size * Long.BYTES + size * Integer.BYTES * 6L
+                + (long) names.length * Character.BYTES + (long) slots.length * Integer.BYTES;
+    }
+
+    char[] nameBuffer() {
+        return names;
+    }
+
+    int nameOffset(int index) {
+        return nameOffsets[index];
+    }
+
+    int nameLength(int index) {
+        return nameOffsets[index + 1] - nameOffsets[index];
+    }
+
+    static int mix(long id) {
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Build open addressing table from id to index + 1.
+     * @param keys ids.
+     * @param count number of ids to insert.
+     * @return slot table, first occurrence wins on duplicates.
+     */
+    private static int[] buildSlots(long[] keys, int count) {
+        if (count == 0) return new int[0];
+        int capacity = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            int slot = mix(keys[i]) & mask;
+            while (table[slot] != 0 && keys[table[slot] - 1] != keys[i]) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private static int lookup(int[] table, long[] keys, long id) {
+        if (table.length == 0) return NONE;
+        int mask = table.length - 1;
+        for (int slot = mix(id) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[table[slot] - 1] == id) return table[slot] - 1;
+        }
+        return NONE;
+    }
+
+    /**
+     * Collects sectors in any order and lays them out in pre-order.
+     */
+    public static final class Builder {
+        private long[] ids;
+        private long[] parentIds;
+        private String[] names;
+        private int count;
+
+        /**
+         * Builder constructor.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Builder constructor.
+         * @param expectedSize expected number of sectors.
+         */
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            ids = new long[capacity];
+            parentIds = new long[capacity];
+            names = new String[capacity];
+        }
+
+        /**
+         * Add one sector.
+         * @param id sector id.
+         * @param parentId parent id or NO_PARENT.
+         * @param name sector name.
+         * @return this builder.
+         */
+        public Builder add(long id, long parentId, String name) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                parentIds = Arrays.copyOf(parentIds, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            ids[count] = id;
+            parentIds[count] = parentId;
+            names[count] = name;
+            count++;
+            return this;
+        }
+
+        /**
+         * Number of sectors added so far.
+         * @return input row count.
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @param position input position.
+         * @return id of the sector added at that position.
+         */
+        public long id(int position) {
+            return ids[position];
+        }
+
+        /**
+         * @param position input position.
+         * @return parent id of the sector added at that position, or NO_PARENT.
+         */
+        public long parentId(int position) {
+            return parentIds[position];
+        }
+
+        /**
+         * Build the catalog in linear time.
+         * Sectors with unknown parents become roots, duplicates and sectors caught in parent cycles are left out.
+         * @return new catalog.
+         */
+        public SectorCatalog build() {
+            int[] table = buildSlots(ids, count);
+            int[] inParent = new int[count];
+            int[] inFirst = new int[count];
+            int[] inNext = new int[count];
+            Arrays.fill(inFirst, NONE);
+            int firstRoot = NONE;
+            int orphans = 0;
+
+            for (int i = count - 1; i >= 0; i--) {
+                inParent[i] = NONE;
+                inNext[i] = NONE;
+                if (lookup(table, ids, ids[i]) != i) continue;
+
+                int parentIndex = parentIds[i] == NO_PARENT ? NONE : lookup(table, ids, parentIds[i]);
+                if (parentIds[i] != NO_PARENT && parentIndex == NONE) orphans++;
+                inParent[i] = parentIndex;
+                if (parentIndex == NONE) {
+                    inNext[i] = firstRoot;
+                    firstRoot = i;
+                } else {
+                    inNext[i] = inFirst[parentIndex];
+                    inFirst[parentIndex] = i;
+                }
+            }
+
+            int[] order = new int[count];
+            int[] positionOf = new int[count];
+            int[] levels = new int[count];
+            int[] ends = new int[count];
+            int size = 0;
+            int node = firstRoot;
+            while (node != NONE) {
+                positionOf[node] = size;
+                levels[size] = inParent[node] == NONE ? 0 : levels[positionOf[inParent[node]]] + 1;
+                order[size++] = node;
+                if (inFirst[node] != NONE) {
+                    node = inFirst[node];
+                    continue;
+                }
+                while (node != NONE) {
+                    ends[positionOf[node]] = size;
+                    if (inNext[node] != NONE) {
+                        node = inNext[node];
+                        break;
+                    }
+                    node = inParent[node];
+                }
+            }
+
+            long[] outIds = new long[size];
+            int[] outParent = new int[size];
+            int[] outOffsets = new int[size + 1];
+            int nameLength = 0;
+            for (int position = 0; position < size; position++) {
+                int input = order[position];
+                outIds[position] = ids[input];
+                outParent[position] = inParent[input] == NONE ? NONE : positionOf[inParent[input]];
+                outOffsets[position] = nameLength;
+                nameLength += names[input] == null ? 0 : names[input].length();
+            }
+            outOffsets[size] = nameLength;
+
+            char[] outNames = new char[nameLength];
+            for (int position = 0; position < size; position++) {
+                String name = names[order[position]];
+                if (name != null) name.getChars(0, name.length(), outNames, outOffsets[position]);
+            }
+
+            return new SectorCatalog(outIds, outParent, Arrays.copyOf(levels, size), Arrays.copyOf(ends, size),
+                    outNames, outOffsets, orphans, count - size);
+        }
+    }
+}
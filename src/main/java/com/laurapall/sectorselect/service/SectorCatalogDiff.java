@@ -0,0 +1,274 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorLayoutRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Difference between the stored sector rows and a new catalog.
+ * Added and changed sectors are kept as catalog indexes in pre-order, so parents come before
+ * their children. Removed sectors are ordered deepest first, so children go before their parents.
+ * The derived columns are not part of the per row changes. One inserted or moved sector shifts the nested
+ * set bounds of every sector after it, and a move changes the path and level of the whole subtree, so these
+ * are described as shifts of stored value ranges and path prefix moves that can be written set-based.
+ */
+public final class SectorCatalogDiff {
+
+    /**
+     * Stored nested set bounds in [from, to] move by delta.
+     * @param from lowest stored bound, inclusive.
+     * @param to highest stored bound, inclusive.
+     * @param delta amount added.
+     */
+    public record Shift(int from, int to, int delta) {
+    }
+
+    /**
+     * Stored paths starting with one prefix get another prefix, and their level moves by levelDelta.
+     * @param from stored path of a moved sector.
+     * @param to new path of the sector.
+     * @param levelDelta amount added to the level.
+     */
+    public record PathMove(String from, String to, int levelDelta) {
+    }
+
+    private final SectorCatalog catalog;
+    private final List<Integer> added = new ArrayList<>();
+    private final List<Integer> changed = new ArrayList<>();
+    private final List<Long> removed = new ArrayList<>();
+    private final List<Integer> removedLevels = new ArrayList<>();
+    private final List<Shift> lftShifts = new ArrayList<>();
+    private final List<Shift> rgtShifts = new ArrayList<>();
+    private final List<PathMove> pathMoves = new ArrayList<>();
+    private int renamed;
+    private int moved;
+    private int relaid;
+
+    private SectorCatalogDiff(SectorCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Compare stored rows with a new catalog.
+     * A sector counts as changed if its name or parent differs. Shifted bounds, and paths and levels
+     * that follow from a moved ancestor, are covered by the shifts and path moves instead.
+     * Rows whose derived columns cannot be explained that way, e.g. because they were never filled,
+     * count as changed and are written one by one.
+     * @param current stored rows.
+     * @param next new catalog.
+     * @return diff.
+     */
+    public static SectorCatalogDiff between(List<SectorLayoutRow> current, SectorCatalog next) {
+        SectorCatalogDiff diff = new SectorCatalogDiff(next);
+        Map<Long, SectorLayoutRow> stored = new HashMap<>(current.size() * 2);
+        for (SectorLayoutRow row : current) {
+            stored.put(row.id(), row);
+        }
+
+        List<int[]> lftPairs = new ArrayList<>();
+        List<int[]> rgtPairs = new ArrayList<>();
+        Map<Long, PathMove> moves = new HashMap<>();
+        Map<Integer, SectorLayoutRow> relaidRows = new HashMap<>();
+        for (int i = 0; i < next.size(); i++) {
+            SectorLayoutRow row = stored.remove(next.id(i));
+            if (row == null) {
+                diff.added.add(i);
+                continue;
+            }
+            int parent = next.parent(i);
+            Long parentId = parent == SectorCatalog.NONE ? null : next.id(parent);
+            boolean renamed = !Objects.equals(row.name(), next.name(i));
+            boolean moved = !Objects.equals(row.parentId(), parentId);
+            if (renamed) diff.renamed++;
+            if (moved) diff.moved++;
+            if (row.lft() != null && row.rgt() != null) {
+                lftPairs.add(new int[] {row.lft(), next.lft(i) - row.lft()});
+                rgtPairs.add(new int[] {row.rgt(), next.rgt(i) - row.rgt()});
+            }
+            if (moved && row.path() != null && row.level() != null) {
+                moves.put(row.id(), new PathMove(row.path(), next.path(i), next.level(i) - row.level()));
+            }
+            boolean relaid = !Objects.equals(row.level(), next.level(i)) || !Objects.equals(row.path(), next.path(i))
+                    || !Objects.equals(row.lft(), next.lft(i)) || !Objects.equals(row.rgt(), next.rgt(i));
+            if (renamed || moved) {
+                diff.changed.add(i);
+            } else if (relaid) {
+                diff.relaid++;
+                relaidRows.put(i, row);
+            }
+        }
+
+        boolean shiftable = toShifts(lftPairs, diff.lftShifts) && toShifts(rgtPairs, diff.rgtShifts);
+        if (!shiftable) {
+            diff.lftShifts.clear();
+            diff.rgtShifts.clear();
+        }
+        relaidRows.forEach((index, row) -> {
+            boolean bounded = shiftable && row.lft() != null && row.rgt() != null;
+            if (!bounded || !followsMoves(row, next, index, moves)) diff.changed.add(index);
+        });
+        diff.changed.sort(Comparator.naturalOrder());
+        diff.pathMoves.addAll(moves.values());
+        diff.pathMoves.sort(Comparator.comparingInt((PathMove move) -> move.from().length()).reversed()
+                .thenComparing(PathMove::from));
+
+        List<SectorLayoutRow> gone = new ArrayList<>(stored.values());
+        gone.sort(Comparator.comparingInt(SectorCatalogDiff::levelOf).reversed().thenComparing(SectorLayoutRow::id));
+        for (SectorLayoutRow row : gone) {
+            diff.removed.add(row.id());
+            diff.removedLevels.add(levelOf(row));
+        }
+        return diff;
+    }
+
+    /**
+     * Merge stored values that are next to each other and move by the same amount into shifts.
+     * @param pairs stored value and delta of every kept row.
+     * @param shifts list the shifts with a non-zero delta are added to.
+     * @return false if the stored values are not distinct and positive, so they cannot be shifted by range.
+     */
+    private static boolean toShifts(List<int[]> pairs, List<Shift> shifts) {
+        pairs.sort(Comparator.comparingInt(pair -> pair[0]));
+        int start = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            if (pairs.get(i)[0] <= 0 || (i > 0 && pairs.get(i)[0] == pairs.get(i - 1)[0])) return false;
+            boolean last = i + 1 == pairs.size();
+            if (last || pairs.get(i + 1)[1] != pairs.get(start)[1]) {
+                if (pairs.get(start)[1] != 0) {
+                    shifts.add(new Shift(pairs.get(start)[0], pairs.get(i)[0], pairs.get(start)[1]));
+                }
+                start = i + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a row that was neither renamed nor moved gets its new path and level from the path move
+     * of its deepest moved ancestor, or keeps both.
+     */
+    private static boolean followsMoves(SectorLayoutRow row, SectorCatalog next, int index,
+                                        Map<Long, PathMove> moves) {
+        if (row.path() == null || row.level() == null) return false;
+        String path = row.path();
+        int level = row.level();
+        PathMove move = null;
+        for (int end = path.lastIndexOf('/', path.length() - 2); end > 0 && move == null;
+             end = path.lastIndexOf('/', end - 1)) {
+            int start = path.lastIndexOf('/', end - 1);
+            Long ancestorId = parseId(path.substring(start + 1, end));
+            PathMove candidate = ancestorId == null ? null : moves.get(ancestorId);
+            if (candidate != null && path.startsWith(candidate.from())) move = candidate;
+        }
+        if (move != null) {
+            path = move.to() + path.substring(move.from().length());
+            level += move.levelDelta();
+        }
+        return path.equals(next.path(index)) && level == next.level(index);
+    }
+
+    private static Long parseId(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int levelOf(SectorLayoutRow row) {
+        return row.level() == null ? 0 : row.level();
+    }
+
+    /**
+     * Check if the stored rows already match the catalog.
+     * @return true if nothing has to be written, else false.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty() && lftShifts.isEmpty()
+                && rgtShifts.isEmpty() && pathMoves.isEmpty();
+    }
+
+    /**
+     * @return new catalog the diff leads to.
+     */
+    public SectorCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return catalog indexes of new sectors, in pre-order.
+     */
+    public List<Integer> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return catalog indexes of existing sectors that have to be written one by one, in pre-order.
+     */
+    public List<Integer> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return ids of sectors missing from the catalog, deepest first.
+     */
+    public List<Long> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @param position position in the removed list.
+     * @return stored level of the removed sector.
+     */
+    public int getRemovedLevel(int position) {
+        return removedLevels.get(position);
+    }
+
+    /**
+     * @return shifts of stored lft values, by ascending stored range.
+     */
+    public List<Shift> getLftShifts() {
+        return Collections.unmodifiableList(lftShifts);
+    }
+
+    /**
+     * @return shifts of stored rgt values, by ascending stored range.
+     */
+    public List<Shift> getRgtShifts() {
+        return Collections.unmodifiableList(rgtShifts);
+    }
+
+    /**
+     * @return path prefix moves of moved sectors, deepest stored path first.
+     */
+    public List<PathMove> getPathMoves() {
+        return Collections.unmodifiableList(pathMoves);
+    }
+
+    /**
+     * @return number of changed sectors with a new name.
+     */
+    public int getRenamed() {
+        return renamed;
+    }
+
+    /**
+     * @return number of changed sectors with a new parent.
+     */
+    public int getMoved() {
+        return moved;
+    }
+
+    /**
+     * @return number of sectors with the same name and parent whose level, path or bounds shifted.
+     */
+    public int getRelaid() {
+        return relaid;
+    }
+}
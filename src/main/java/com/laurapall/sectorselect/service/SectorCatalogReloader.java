@@ -0,0 +1,275 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorReloadResponse;
+import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.repository.SectorRepository;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reloads the sector catalog while the application is running.
+ * Only the difference to the stored rows is written, in one transaction, and the new catalog
+ * is published to readers once it is committed. Sectors the new catalog removes are retired first, so
+ * writes stop selecting them before the reload checks that no submission still does; other writes go on
+ * while the reload runs.
+ * Renamed, moved and new sectors are written row by row; the nested set bounds, paths and levels of the
+ * sectors around them are shifted by set-based updates, so one insert near the top of the tree does not
+ * rewrite every row.
+ */
+@Service
+public class SectorCatalogReloader {
+
+    /**
+     * Number of rows written or deleted per statement batch.
+     */
+    static final int BATCH_SIZE = SectorDataLoader.BATCH_SIZE;
+
+    /**
+     * Maximum number of ids passed to one IN query.
+     */
+    static final int MAX_IN_IDS = 1000;
+
+    /**
+     * Maximum number of bound shifts written by one update statement.
+     */
+    static final int MAX_SHIFTS_PER_STATEMENT = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SectorCatalogReloader.class);
+    private final SectorDataLoader dataLoader;
+    private final SectorRepository sectorRepository;
+    private final SubmissionRepository submissionRepository;
+    private final EntityManager entityManager;
+    private final SectorService sectorService;
+    private final TransactionTemplate transactionTemplate;
+    private final Object reloadLock = new Object();
+
+    /**
+     * Reloader constructor.
+     * @param dataLoader loader used to read and validate the catalog source.
+     * @param sectorRepository sector repository.
+     * @param submissionRepository submission repository, used to protect selected sectors from removal.
+     * @param entityManager entity manager.
+     * @param sectorService sector service to publish the new catalog to.
+     * @param transactionManager transaction manager.
+     */
+    public SectorCatalogReloader(SectorDataLoader dataLoader, SectorRepository sectorRepository,
+                                 SubmissionRepository submissionRepository, EntityManager entityManager,
+                                 SectorService sectorService, PlatformTransactionManager transactionManager) {
+        this.dataLoader = dataLoader;
+        this.sectorRepository = sectorRepository;
+        this.submissionRepository = submissionRepository;
+        this.entityManager = entityManager;
+        this.sectorService = sectorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Read the catalog source again and apply the changes. Concurrent calls run one after another.
+     * @return summary of the applied changes.
+     * @throws IOException if the catalog source cannot be read.
+     * @throws IllegalStateException if the catalog is invalid or removes sectors that submissions still use.
+     */
+    public SectorReloadResponse reload() throws IOException {
+        synchronized (reloadLock) {
+            long started = System.nanoTime();
+            SectorCatalog catalog = dataLoader.readCatalog();
+            SectorCatalogDiff diff = SectorCatalogDiff.between(sectorRepository.findAllLayoutRows(), catalog);
+            boolean removing = !diff.getRemoved().isEmpty();
+            if (removing) sectorService.retireSectors(diff.getRemoved());
+            try {
+                if (!diff.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> apply(diff));
+                    sectorService.publishCatalog(catalog);
+                }
+            } finally {
+                if (removing) sectorService.retireSectors(List.of());
+            }
+
+            if (diff.isEmpty()) {
+                LOGGER.info("Sector catalog reloaded without changes");
+            } else {
+                LOGGER.info("Sector catalog reloaded: {} added, {} renamed, {} moved, {} re-laid out, {} removed",
+                        diff.getAdded().size(), diff.getRenamed(), diff.getMoved(), diff.getRelaid(),
+                        diff.getRemoved().size());
+            }
+            return toResponse(diff, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Write a diff: new sectors first, then the shifted bounds and moved paths of the stored rows,
+     * then changed sectors, then removals from the deepest level up.
+     * New sectors are inserted with negated bounds so that the shifts, which select stored rows by
+     * their old bounds, leave them alone; the shift statement turns them positive.
+     * @param diff diff to apply.
+     */
+    private void apply(SectorCatalogDiff diff) {
+        List<Long> referenced = findReferenced(diff.getRemoved());
+        if (!referenced.isEmpty()) {
+            throw new IllegalStateException("Cannot remove " + referenced.size()
+                    + " sector(s) still selected in submissions, e.g. " + referenced.get(0));
+        }
+
+        SectorCatalog catalog = diff.getCatalog();
+        List<Integer> added = diff.getAdded();
+        for (int i = 0; i < added.size(); i++) {
+            Sector sector = SectorDataLoader.toEntity(entityManager, catalog, added.get(i));
+            sector.setLft(-sector.getLft());
+            sector.setRgt(-sector.getRgt());
+            entityManager.persist(sector);
+            if ((i + 1) % BATCH_SIZE == 0) flushAndClear();
+        }
+        flushAndClear();
+
+        shiftBounds(diff);
+        for (SectorCatalogDiff.PathMove move : diff.getPathMoves()) {
+            entityManager.createQuery("update Sector s set s.path = concat(:target, substring(s.path, :rest)), "
+                            + "s.level = s.level + :levelDelta where s.path like :prefix")
+                    .setParameter("target", move.to())
+                    .setParameter("rest", move.from().length() + 1)
+                    .setParameter("levelDelta", move.levelDelta())
+                    .setParameter("prefix", move.from() + "%")
+                    .executeUpdate();
+        }
+
+        List<Integer> changed = diff.getChanged();
+        for (int start = 0; start < changed.size(); start += BATCH_SIZE) {
+            List<Integer> batch = changed.subList(start, Math.min(start + BATCH_SIZE, changed.size()));
+            List<Long> ids = batch.stream().map(catalog::id).toList();
+            Map<Long, Sector> sectors = new HashMap<>();
+            for (Sector sector : sectorRepository.findAllById(ids)) {
+                sectors.put(sector.getId(), sector);
+            }
+            for (int index : batch) {
+                SectorDataLoader.applyRow(entityManager, sectors.get(catalog.id(index)), catalog, index);
+            }
+            flushAndClear();
+        }
+
+        List<Long> removed = diff.getRemoved();
+        int start = 0;
+        for (int i = 1; i <= removed.size(); i++) {
+            boolean levelChanges = i < removed.size() && diff.getRemovedLevel(i) != diff.getRemovedLevel(start);
+            if (i == removed.size() || i - start == BATCH_SIZE || levelChanges) {
+                sectorRepository.deleteAllByIdInBatch(removed.subList(start, i));
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * Move stored nested set bounds by range and make the negated bounds of new sectors positive.
+     * Every range refers to stored values, so all ranges must be applied against the values before any of
+     * them moved. Up to MAX_SHIFTS_PER_STATEMENT ranges this is a single statement. Above that, each
+     * statement stores what it moves negated, where no later range can match it, and a last statement
+     * turns all negative bounds positive.
+     * @param diff diff with the shifts.
+     */
+    private void shiftBounds(SectorCatalogDiff diff) {
+        List<SectorCatalogDiff.Shift> lft = diff.getLftShifts();
+        List<SectorCatalogDiff.Shift> rgt = diff.getRgtShifts();
+        if (lft.size() + rgt.size() <= MAX_SHIFTS_PER_STATEMENT) {
+            if (!lft.isEmpty() || !rgt.isEmpty() || !diff.getAdded().isEmpty()) shift(lft, rgt, false);
+            return;
+        }
+        for (int start = 0; start < lft.size(); start += MAX_SHIFTS_PER_STATEMENT) {
+            shift(lft.subList(start, Math.min(start + MAX_SHIFTS_PER_STATEMENT, lft.size())), List.of(), true);
+        }
+        for (int start = 0; start < rgt.size(); start += MAX_SHIFTS_PER_STATEMENT) {
+            shift(List.of(), rgt.subList(start, Math.min(start + MAX_SHIFTS_PER_STATEMENT, rgt.size())), true);
+        }
+        shift(List.of(), List.of(), false);
+    }
+
+    /**
+     * Run one bound update statement.
+     * @param lft shifts of lft values.
+     * @param rgt shifts of rgt values.
+     * @param negate true to store moved bounds negated, false to store them as they are and make
+     *               negative bounds positive.
+     */
+    private void shift(List<SectorCatalogDiff.Shift> lft, List<SectorCatalogDiff.Shift> rgt, boolean negate) {
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        List<String> assignments = new ArrayList<>();
+        for (String column : List.of("lft", "rgt")) {
+            List<SectorCatalogDiff.Shift> shifts = column.equals("lft") ? lft : rgt;
+            StringBuilder value = new StringBuilder("case");
+            if (!negate) {
+                value.append(" when s.").append(column).append(" < 0 then -s.").append(column);
+                conditions.add("s." + column + " < 0");
+            }
+            for (int i = 0; i < shifts.size(); i++) {
+                String name = column + i;
+                String range = "s." + column + " between :" + name + "From and :" + name + "To";
+                String moved = "s." + column + " + :" + name + "Delta";
+                value.append(" when ").append(range).append(" then ").append(negate ? "-(" + moved + ")" : moved);
+                conditions.add(range);
+                parameters.put(name + "From", shifts.get(i).from());
+                parameters.put(name + "To", shifts.get(i).to());
+                parameters.put(name + "Delta", shifts.get(i).delta());
+            }
+            if (negate && shifts.isEmpty()) continue;
+            assignments.add("s." + column + " = " + value + " else s." + column + " end");
+        }
+        Query query = entityManager.createQuery("update Sector s set " + String.join(", ", assignments)
+                + " where " + String.join(" or ", conditions));
+        parameters.forEach(query::setParameter);
+        query.executeUpdate();
+    }
+
+    /**
+     * Find removed sectors that are still selected, in join rows or in sector bitmaps.
+     * Bitmaps are not indexed by sector, so they are all read and intersected with the removed ids.
+     */
+    private List<Long> findReferenced(List<Long> sectorIds) {
+        if (sectorIds.isEmpty()) return List.of();
+        Set<Long> referenced = new LinkedHashSet<>();
+        for (int start = 0; start < sectorIds.size(); start += MAX_IN_IDS) {
+            referenced.addAll(submissionRepository.findReferencedSectorIds(
+                    sectorIds.subList(start, Math.min(start + MAX_IN_IDS, sectorIds.size()))));
+        }
+
+        RoaringBitmap candidates = SectorBitmapCodec.toBitmap(
+                sectorIds.stream().filter(SectorBitmapCodec::isEncodable).toList());
+        RoaringBitmap inBitmaps = new RoaringBitmap();
+        submissionRepository.forEachSectorBitmap(row -> {
+            RoaringBitmap selection = SectorBitmapCodec.decode(row.sectorBitmap());
+            if (SectorBitmapCodec.anyOf(selection, candidates)) inBitmaps.or(RoaringBitmap.and(selection, candidates));
+        });
+        referenced.addAll(SectorBitmapCodec.toIds(inBitmaps));
+        return new ArrayList<>(referenced);
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private SectorReloadResponse toResponse(SectorCatalogDiff diff, long durationMillis) {
+        SectorReloadResponse response = new SectorReloadResponse();
+        response.setSectorCount(diff.getCatalog().size());
+        response.setAdded(diff.getAdded().size());
+        response.setRenamed(diff.getRenamed());
+        response.setMoved(diff.getMoved());
+        response.setRelaid(diff.getRelaid());
+        response.setRemoved(diff.getRemoved().size());
+        response.setDurationMillis(durationMillis);
+        return response;
+    }
+}
@@ -0,0 +1,269 @@
+package com.laurapall.sectorselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a binary copy of a built sector catalog on disk, so later starts can map it
+ * instead of parsing the JSON source again.
+ * The file holds a header with the checksum of the JSON it was built from and the validation
+ * settings it was validated with, followed by the catalog arrays in pre-order and a checksum of
+ * those arrays. A snapshot whose source checksum or validation settings differ, or which fails
+ * any check, is ignored, so a catalog quarantined under other settings is never reused.
+ */
+@Component
+public class SectorCatalogSnapshotStore {
+
+    /**
+     * Snapshot file format version, bumped whenever the layout changes.
+     */
+    static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x53454354;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 2 * Long.BYTES + 4 * Integer.BYTES;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SectorCatalogSnapshotStore.class);
+
+    private final Path path;
+
+    /**
+     * Snapshot store constructor.
+     * @param path snapshot file location, blank to disable snapshots.
+     */
+    public SectorCatalogSnapshotStore(@Value("${sectorselect.catalog.snapshot-path:}") String path) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path.trim());
+    }
+
+    /**
+     * Check if a snapshot location is configured.
+     * @return true if snapshots are read and written, else false.
+     */
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Compute the checksum of a catalog source.
+     * @param is source stream, read to the end but left open.
+     * @return CRC32 of all bytes.
+     * @throws IOException if reading fails.
+     */
+    public static long checksum(InputStream is) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        for (int read = is.read(buffer); read != -1; read = is.read(buffer)) {
+            crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Map the snapshot file and restore the catalog from it.
+     * @param sourceChecksum checksum of the current JSON source.
+     * @param policy current validation policy.
+     * @param maxDepth current maximum sector depth.
+     * @return catalog, or empty optional if snapshots are disabled, missing, stale or damaged.
+     */
+    public Optional<SectorCatalog> load(long sourceChecksum, SectorCatalogValidator.Policy policy, int maxDepth) {
+        if (!isEnabled() || !Files.isRegularFile(path)) return Optional.empty();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.ofNullable(decode(mapped.order(ByteOrder.LITTLE_ENDIAN), sourceChecksum, policy, maxDepth));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not read sector catalog snapshot {}: {}", path, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write the catalog to the snapshot file. The file is replaced atomically, so a reader
+     * never sees a half written snapshot. Failures are logged and otherwise ignored.
+     * @param catalog catalog to store.
+     * @param sourceChecksum checksum of the JSON source the catalog was built from.
+     * @param policy validation policy the catalog was validated with.
+     * @param maxDepth maximum sector depth the catalog was validated with.
+     */
+    public void save(SectorCatalog catalog, long sourceChecksum, SectorCatalogValidator.Policy policy, int maxDepth) {
+        if (!isEnabled()) return;
+
+        ByteBuffer buffer = encode(catalog, sourceChecksum, policy, maxDepth);
+        Path temporary = null;
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote sector catalog snapshot {} ({} bytes)", path, buffer.capacity());
+        } catch (IOException e) {
+            LOGGER.warn("Could not write sector catalog snapshot {}: {}", path, e.toString());
+            deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Lay out header and catalog arrays in one buffer.
+     * @param catalog catalog to encode.
+     * @param sourceChecksum checksum of the JSON source.
+     * @param policy validation policy.
+     * @param maxDepth maximum sector depth.
+     * @return buffer ready to be written.
+     */
+    private static ByteBuffer encode(SectorCatalog catalog, long sourceChecksum, SectorCatalogValidator.Policy policy,
+                                     int maxDepth) {
+        int size = catalog.size();
+        char[] names = catalog.nameBuffer();
+        int nameLength = size == 0 ? 0 : catalog.nameOffset(size - 1) + catalog.nameLength(size - 1);
+        long payloadBytes = (long) size * Long.BYTES + (long) size * 3 * Integer.BYTES
+                + (long) (size + 1) * Integer.BYTES + (long) nameLength * Character.BYTES;
+        if (HEADER_BYTES + payloadBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sector catalog is too large for a snapshot");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + payloadBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < size; i++) buffer.putLong(catalog.id(i));
+        for (int i = 0; i < size; i++) buffer.putInt(catalog.parent(i));
+        for (int i = 0; i < size; i++) buffer.putInt(catalog.level(i));
+        for (int i = 0; i < size; i++) buffer.putInt(catalog.subtreeEnd(i));
+        for (int i = 0; i < size; i++) buffer.putInt(catalog.nameOffset(i));
+        buffer.putInt(nameLength);
+        for (int i = 0; i < nameLength; i++) buffer.putChar(names[i]);
+
+        CRC32 payloadCrc = new CRC32();
+        payloadCrc.update(buffer.duplicate().position(HEADER_BYTES).limit(buffer.capacity()));
+
+        buffer.position(0);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(size);
+        buffer.putInt(nameLength);
+        buffer.putLong(sourceChecksum);
+        buffer.putLong(payloadCrc.getValue());
+        buffer.putInt(catalog.getOrphanCount());
+        buffer.putInt(catalog.getDroppedCount());
+        buffer.putInt(policy.ordinal());
+        buffer.putInt(maxDepth);
+        buffer.position(0);
+        return buffer;
+    }
+
+    /**
+     * Check header and payload and copy the arrays out of the mapped file.
+     * @param buffer mapped snapshot.
+     * @param sourceChecksum checksum of the current JSON source.
+     * @param policy current validation policy.
+     * @param maxDepth current maximum sector depth.
+     * @return catalog, or null if the snapshot is stale.
+     * @throws IOException if the snapshot is damaged.
+     */
+    private SectorCatalog decode(ByteBuffer buffer, long sourceChecksum, SectorCatalogValidator.Policy policy,
+                                 int maxDepth) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("not a sector catalog snapshot");
+        }
+        if (buffer.getInt() != FORMAT_VERSION) {
+            LOGGER.info("Sector catalog snapshot {} has an old format; ignoring it", path);
+            return null;
+        }
+        int size = buffer.getInt();
+        int nameLength = buffer.getInt();
+        long storedSourceChecksum = buffer.getLong();
+        long storedPayloadCrc = buffer.getLong();
+        int orphanCount = buffer.getInt();
+        int droppedCount = buffer.getInt();
+        int storedPolicy = buffer.getInt();
+        int storedMaxDepth = buffer.getInt();
+        if (storedSourceChecksum != sourceChecksum) {
+            LOGGER.info("Sector catalog snapshot {} is stale; parsing JSON instead", path);
+            return null;
+        }
+        if (storedPolicy != policy.ordinal() || storedMaxDepth != maxDepth) {
+            LOGGER.info("Sector catalog snapshot {} was validated with other settings; parsing JSON instead", path);
+            return null;
+        }
+
+        long expected = HEADER_BYTES + (long) size * Long.BYTES + (long) size * 3 * Integer.BYTES
+                + (long) (size + 1) * Integer.BYTES + (long) nameLength * Character.BYTES;
+        if (size < 0 || nameLength < 0 || buffer.capacity() != expected) {
+            throw new IOException("unexpected snapshot length " + buffer.capacity());
+        }
+        CRC32 payloadCrc = new CRC32();
+        payloadCrc.update(buffer.duplicate());
+        if (payloadCrc.getValue() != storedPayloadCrc) {
+            throw new IOException("snapshot checksum mismatch");
+        }
+
+        long[] ids = new long[size];
+        int[] parent = new int[size];
+        int[] level = new int[size];
+        int[] subtreeEnd = new int[size];
+        int[] nameOffsets = new int[size + 1];
+        char[] names = new char[nameLength];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + size * Long.BYTES);
+        readInts(buffer, parent);
+        readInts(buffer, level);
+        readInts(buffer, subtreeEnd);
+        readInts(buffer, nameOffsets);
+        buffer.asCharBuffer().get(names);
+
+        checkStructure(parent, level, subtreeEnd, nameOffsets, nameLength);
+        return SectorCatalog.restore(ids, parent, level, subtreeEnd, names, nameOffsets, orphanCount, droppedCount);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete {}", file, e);
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] target) {
+        buffer.asIntBuffer().get(target);
+        buffer.position(buffer.position() + target.length * Integer.BYTES);
+    }
+
+    /**
+     * Make sure the arrays describe a pre-order layout, so a bad file cannot produce a broken catalog.
+     * @throws IOException if any link points outside its allowed range.
+     */
+    private static void checkStructure(int[] parent, int[] level, int[] subtreeEnd, int[] nameOffsets,
+                                       int nameLength) throws IOException {
+        int size = parent.length;
+        for (int i = 0; i < size; i++) {
+            boolean parentValid = parent[i] == SectorCatalog.NONE
+                    ? level[i] == 0
+                    : parent[i] >= 0 && parent[i] < i && level[i] == level[parent[i]] + 1
+                    && subtreeEnd[i] <= subtreeEnd[parent[i]];
+            if (!parentValid || subtreeEnd[i] <= i || subtreeEnd[i] > size
+                    || nameOffsets[i] < 0 || nameOffsets[i] > nameOffsets[i + 1]) {
+                throw new IOException("snapshot structure is invalid at index " + i);
+            }
+        }
+        if (nameOffsets[size] != nameLength) {
+            throw new IOException("snapshot name table is invalid");
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorCatalogIssue;
+import com.laurapall.sectorselect.dto.SectorCatalogValidationReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Validates parsed sector rows before they are loaded: duplicate ids, orphans, parent cycles
+ * and unusually deep sectors. Every pass runs over index ranges in the common fork/join pool.
+ */
+@Component
+public class SectorCatalogValidator {
+
+    /**
+     * What to do when a catalog has errors.
+     */
+    public enum Policy {
+        /**
+         * Reject the whole catalog.
+         */
+        FAIL_FAST,
+        /**
+         * Leave out offending sectors and load the rest.
+         */
+        QUARANTINE
+    }
+
+    /**
+     * Maximum number of issues of one type kept in the report sample.
+     */
+    static final int MAX_REPORTED_ISSUES = 100;
+    private static final int RANGE_THRESHOLD = 4096;
+    private static final int UNKNOWN = 0;
+    private static final int BROKEN = -1;
+
+    private final Policy policy;
+    private final int maxDepth;
+
+    /**
+     * Validator constructor.
+     * @param policy fail-fast or quarantine.
+     * @param maxDepth deepest allowed level before a sector is reported as a depth outlier.
+     */
+    public SectorCatalogValidator(@Value("${sectorselect.catalog.validation-policy:fail-fast}") String policy,
+                                  @Value("${sectorselect.catalog.max-depth:32}") int maxDepth) {
+        this.policy = Policy.valueOf(policy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Get configured policy.
+     * @return policy.
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get configured maximum depth.
+     * @return deepest allowed level.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Validate parsed rows.
+     * @param rows parsed sectors in input order.
+     * @return validation report.
+     */
+    public SectorCatalogValidationReport validate(SectorCatalog.Builder rows) {
+        long started = System.nanoTime();
+        int count = rows.size();
+        Map<SectorCatalogIssue.Type, Integer> counts = new EnumMap<>(SectorCatalogIssue.Type.class);
+        Queue<SectorCatalogIssue> issues = new ConcurrentLinkedQueue<>();
+        IssueSink sink = new IssueSink(issues);
+
+        int capacity = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        boolean[] duplicate = new boolean[count];
+        forEachIndex(count, i -> insert(table, rows, i, duplicate));
+
+        int[] parents = new int[count];
+        forEachIndex(count, i -> {
+            long parentId = rows.parentId(i);
+            parents[i] = SectorCatalog.NONE;
+            if (duplicate[i]) {
+                sink.add(SectorCatalogIssue.Type.DUPLICATE_ID, rows.id(i), parentId);
+            } else if (parentId != SectorCatalog.NO_PARENT) {
+                int parent = lookup(table, rows, parentId);
+                if (parent == SectorCatalog.NONE) sink.add(SectorCatalogIssue.Type.ORPHAN, rows.id(i), parentId);
+                parents[i] = parent;
+            }
+        });
+
+        int[] depths = new int[count];
+        Set<Integer> cycleMembers = ConcurrentHashMap.newKeySet();
+        forEachIndex(count, i -> resolveDepth(i, parents, depths, duplicate, cycleMembers));
+        for (int member : cycleMembers) {
+            sink.add(SectorCatalogIssue.Type.CYCLE, rows.id(member), rows.parentId(member));
+        }
+
+        forEachIndex(count, i -> {
+            if (duplicate[i]) return;
+            if (depths[i] == BROKEN) {
+                if (!cycleMembers.contains(i)) sink.add(SectorCatalogIssue.Type.UNDER_CYCLE, rows.id(i), rows.parentId(i));
+            } else if (depths[i] - 1 > maxDepth) {
+                sink.add(SectorCatalogIssue.Type.DEPTH_OUTLIER, rows.id(i), rows.parentId(i));
+            }
+        });
+        int deepest = 0;
+        for (int i = 0; i < count; i++) {
+            deepest = Math.max(deepest, depths[i] - 1);
+        }
+
+        sink.counts.forEach((type, counter) -> counts.put(type, counter.get()));
+        List<SectorCatalogIssue> sample = new ArrayList<>(issues);
+        sample.sort(Comparator.comparing(SectorCatalogIssue::type).thenComparingLong(SectorCatalogIssue::sectorId));
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        return new SectorCatalogValidationReport(count, deepest, elapsed, counts, sample);
+    }
+
+    /**
+     * Insert a row into the id table. The lowest position of an id wins, later ones are duplicates.
+     */
+    private static void insert(AtomicIntegerArray table, SectorCatalog.Builder rows, int position, boolean[] duplicate) {
+        long id = rows.id(position);
+        int mask = table.length() - 1;
+        int slot = SectorCatalog.mix(id) & mask;
+        while (true) {
+            int current = table.get(slot);
+            if (current == 0) {
+                if (table.compareAndSet(slot, 0, position + 1)) return;
+                continue;
+            }
+            if (rows.id(current - 1) != id) {
+                slot = (slot + 1) & mask;
+                continue;
+            }
+            if (current - 1 < position) {
+                duplicate[position] = true;
+                return;
+            }
+            if (table.compareAndSet(slot, current, position + 1)) {
+                duplicate[current - 1] = true;
+                return;
+            }
+        }
+    }
+
+    private static int lookup(AtomicIntegerArray table, SectorCatalog.Builder rows, long id) {
+        int mask = table.length() - 1;
+        for (int slot = SectorCatalog.mix(id) & mask; ; slot = (slot + 1) & mask) {
+            int current = table.get(slot);
+            if (current == 0) return SectorCatalog.NONE;
+            if (rows.id(current - 1) == id) return current - 1;
+        }
+    }
+
+    /**
+     * Walk up from a row until a known depth or a root is found, then fill in the depths on the way.
+     * A walk longer than the number of rows means the chain runs into a cycle.
+     * Depths are stored plus one so zero can mean unknown; concurrent walks write the same values.
+     */
+    private static void resolveDepth(int start, int[] parents, int[] depths, boolean[] duplicate, Set<Integer> cycleMembers) {
+        if (duplicate[start] || depths[start] != UNKNOWN) return;
+        int[] path = new int[16];
+        int length = 0;
+        int node = start;
+        int base;
+        while (true) {
+            int known = depths[node];
+            if (known != UNKNOWN) {
+                base = known;
+                break;
+            }
+            if (length == path.length) path = Arrays.copyOf(path, length * 2);
+            path[length++] = node;
+            if (parents[node] == SectorCatalog.NONE) {
+                base = 0;
+                break;
+            }
+            if (length > parents.length) {
+                for (int member = node; cycleMembers.add(member); member = parents[member]) {
+                    depths[member] = BROKEN;
+                }
+                base = BROKEN;
+                break;
+            }
+            node = parents[node];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            depths[path[i]] = base == BROKEN ? BROKEN : base + (length - i);
+        }
+    }
+
+    private static void forEachIndex(int count, IntConsumer body) {
+        ForkJoinPool.commonPool().invoke(new RangeAction(0, count, body));
+    }
+
+    /**
+     * Splits an index range until it is small enough to run directly.
+     */
+    private static final class RangeAction extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        RangeAction(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RANGE_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, body), new RangeAction(middle, to, body));
+        }
+    }
+
+    /**
+     * Counts issues per type and keeps the first MAX_REPORTED_ISSUES of each.
+     */
+    private static final class IssueSink {
+        private final Queue<SectorCatalogIssue> issues;
+        private final Map<SectorCatalogIssue.Type, AtomicInteger> counts = new EnumMap<>(SectorCatalogIssue.Type.class);
+
+        IssueSink(Queue<SectorCatalogIssue> issues) {
+            this.issues = issues;
+            for (SectorCatalogIssue.Type type : SectorCatalogIssue.Type.values()) {
+                counts.put(type, new AtomicInteger());
+            }
+        }
+
+        void add(SectorCatalogIssue.Type type, long sectorId, long parentId) {
+            if (counts.get(type).incrementAndGet() <= MAX_REPORTED_ISSUES) {
+                issues.add(new SectorCatalogIssue(type, sectorId, parentId == SectorCatalog.NO_PARENT ? null : parentId));
+            }
+        }
+    }
+}
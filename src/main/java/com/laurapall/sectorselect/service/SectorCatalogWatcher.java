@@ -0,0 +1,122 @@
+package com.laurapall.sectorselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Watches the catalog file and reloads the catalog when it changes.
+ * Only works when the catalog location is a plain file, e.g. "file:/etc/sectorselect/sectors.json".
+ */
+@Component
+public class SectorCatalogWatcher implements DisposableBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SectorCatalogWatcher.class);
+    private final SectorDataLoader dataLoader;
+    private final SectorCatalogReloader reloader;
+    private final boolean enabled;
+    private final long settleMillis;
+    private volatile Thread thread;
+    private volatile WatchService watchService;
+
+    /**
+     * Watcher constructor.
+     * @param dataLoader loader that knows the catalog location.
+     * @param reloader reloader to run on changes.
+     * @param enabled whether to watch the catalog file.
+     * @param settleMillis time to wait after a change before reloading, so writers can finish.
+     */
+    public SectorCatalogWatcher(SectorDataLoader dataLoader, SectorCatalogReloader reloader,
+                                @Value("${sectorselect.catalog.watch:false}") boolean enabled,
+                                @Value("${sectorselect.catalog.watch-settle-ms:500}") long settleMillis) {
+        this.dataLoader = dataLoader;
+        this.reloader = reloader;
+        this.enabled = enabled;
+        this.settleMillis = settleMillis;
+    }
+
+    /**
+     * Start watching once the initial load is done.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        Resource resource = dataLoader.getResource();
+        Path file;
+        try {
+            file = resource.getFile().toPath().toAbsolutePath();
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Cannot watch sector catalog {}: {}", resource, e.toString());
+            return;
+        }
+
+        thread = new Thread(() -> watch(file), "sector-catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Watching sector catalog {}", file);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        Thread running = thread;
+        if (running != null) running.interrupt();
+        if (watchService != null) watchService.close();
+    }
+
+    /**
+     * Wait for changes of the catalog file. Bursts of events are folded into one reload.
+     * @param file watched file.
+     */
+    private void watch(Path file) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!touches(watchService.take(), file)) continue;
+
+                Thread.sleep(settleMillis);
+                for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+                    touches(key, file);
+                }
+                try {
+                    reloader.reload();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Sector catalog reload after file change failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Sector catalog watch service closed");
+        }
+    }
+
+    /**
+     * Consume the events of a key and reset it.
+     * @param key signalled key.
+     * @param file watched file.
+     * @return true if any event is about the file, else false.
+     */
+    private boolean touches(WatchKey key, Path file) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (file.getFileName().equals(event.context())) touched = true;
+        }
+        key.reset();
+        return touched;
+    }
+}
@@ -1,24 +1,29 @@
 package com.laurapall.sectorselect.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.laurapall.sectorselect.dto.SectorCatalogIssue;
+import com.laurapall.sectorselect.dto.SectorCatalogValidationReport;
 import com.laurapall.sectorselect.dto.SectorJson;
 import com.laurapall.sectorselect.entity.Sector;
 import com.laurapall.sectorselect.repository.SectorRepository;
 import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 /**
  * Data loader class to read sector data from file and add sectors to database.
@@ -26,83 +31,244 @@ import java.util.Map;
 @Service
 public class SectorDataLoader implements CommandLineRunner {
 
+    /**
+     * Number of rows persisted before the persistence context is flushed and cleared.
+     */
+    static final int BATCH_SIZE = 100;
+
+    /**
+     * Number of rows committed in one transaction.
+     */
+    static final int CHUNK_SIZE = 10_000;
+
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final Logger LOGGER = LoggerFactory.getLogger(SectorDataLoader.class);
     private final SectorRepository repository;
     private final EntityManager entityManager;
+    private final SectorService sectorService;
+    private final TransactionTemplate transactionTemplate;
+    private final SectorCatalogValidator validator;
+    private final SectorCatalogSnapshotStore snapshotStore;
+    private final ResourceLoader resourceLoader;
+    private final String location;
 
     /**
      * Sector data loader constructor.
      *
      * @param repository SectorRepository.
+     * @param entityManager entity manager.
+     * @param sectorService sector service to publish the loaded catalog to.
+     * @param transactionManager transaction manager used to commit in chunks.
+     * @param validator validator run on the parsed sectors before anything is written.
+     * @param snapshotStore binary catalog snapshot used to skip JSON parsing on later starts.
+     * @param resourceLoader resource loader used to resolve the catalog location.
+     * @param location catalog JSON location, e.g. "classpath:data/sectors.json" or "file:/etc/sectors.json".
      */
-    public SectorDataLoader(SectorRepository repository, EntityManager entityManager) {
+    public SectorDataLoader(SectorRepository repository, EntityManager entityManager, SectorService sectorService,
+                            PlatformTransactionManager transactionManager, SectorCatalogValidator validator,
+                            SectorCatalogSnapshotStore snapshotStore, ResourceLoader resourceLoader,
+                            @Value("${sectorselect.catalog.location:classpath:data/sectors.json}") String location) {
         this.repository = repository;
         this.entityManager = entityManager;
+        this.sectorService = sectorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.snapshotStore = snapshotStore;
+        this.resourceLoader = resourceLoader;
+        this.location = location;
     }
 
     @Override
-    @Transactional
     public void run(String... args) throws Exception {
         loadIfEmpty();
     }
 
-    @Transactional
     public void loadIfEmpty() throws IOException {
         if (repository.count() > 0) {
             LOGGER.info("Sectors already present; skipping load.");
             return;
         }
 
-        ClassPathResource resource = new ClassPathResource("data/sectors.json");
+        Resource resource = getResource();
         if (!resource.exists()) {
-            LOGGER.error("sectors.json not found on classpath: {}", resource.getPath());
+            LOGGER.error("Sector catalog not found: {}", location);
             return;
         }
 
-        try (InputStream is = resource.getInputStream()) {
-            List<SectorJson> list = MAPPER.readValue(is, new TypeReference<List<SectorJson>>() {
-            });
+        long started = System.nanoTime();
+        SectorCatalog catalog = readCatalog(resource);
+        LOGGER.info("Read {} sectors in {} ms", catalog.size(), (System.nanoTime() - started) / 1_000_000);
 
-            Map<Long, Sector> sectorMap = new LinkedHashMap<>();
+        persist(catalog);
+        LOGGER.info("Loaded {} sectors from JSON.", catalog.size());
+        sectorService.publishCatalog(catalog);
+    }
 
-            for (SectorJson sectorJson : list) {
-                Sector sector = new Sector();
-                sector.setId(sectorJson.getId());
-                sector.setName(sectorJson.getName());
-                sector.setParent(null);
-                sectorMap.put(sector.getId(), sector);
+    /**
+     * Get the configured catalog source.
+     * @return catalog JSON resource.
+     */
+    public Resource getResource() {
+        return resourceLoader.getResource(location);
+    }
+
+    /**
+     * Read and validate the configured catalog without writing anything to the database.
+     * @return sector catalog.
+     * @throws IOException if the catalog is missing or cannot be parsed.
+     */
+    public SectorCatalog readCatalog() throws IOException {
+        Resource resource = getResource();
+        if (!resource.exists()) throw new FileNotFoundException("Sector catalog not found: " + location);
+        return readCatalog(resource);
+    }
+
+    /**
+     * Copy the stored fields of a catalog row onto a sector entity.
+     * Nested set bounds and path follow from the pre-order position.
+     * @param entityManager entity manager used to reference the parent.
+     * @param sector new or managed sector entity.
+     * @param catalog sector catalog.
+     * @param index catalog index.
+     */
+    static void applyRow(EntityManager entityManager, Sector sector, SectorCatalog catalog, int index) {
+        sector.setName(catalog.name(index));
+        sector.setLevel(catalog.level(index));
+        int parent = catalog.parent(index);
+        sector.setParent(parent == SectorCatalog.NONE
+                ? null
+                : entityManager.getReference(Sector.class, catalog.id(parent)));
+        sector.setPath(catalog.path(index));
+        sector.setLft(catalog.lft(index));
+        sector.setRgt(catalog.rgt(index));
+    }
+
+    /**
+     * Get the catalog from the binary snapshot if it was built from the same JSON with the same
+     * validation settings, else parse and validate the JSON and store a new snapshot.
+     * @param resource JSON source.
+     * @return sector catalog.
+     * @throws IOException if the JSON cannot be read.
+     */
+    private SectorCatalog readCatalog(Resource resource) throws IOException {
+        long checksum = 0;
+        if (snapshotStore.isEnabled()) {
+            try (InputStream is = resource.getInputStream()) {
+                checksum = SectorCatalogSnapshotStore.checksum(is);
+            }
+            Optional<SectorCatalog> stored = snapshotStore.load(checksum, validator.getPolicy(), validator.getMaxDepth());
+            if (stored.isPresent()) {
+                LOGGER.info("Using sector catalog snapshot instead of parsing JSON.");
+                return stored.get();
             }
+        }
 
-            for (SectorJson sectorJson : list) {
-                Long parentId = sectorJson.getParentId();
-                if (parentId != null) {
-                    Sector child = sectorMap.get(sectorJson.getId());
-                    Sector parent = sectorMap.get(sectorJson.getParentId());
-                    if (parent == null) {
-                        LOGGER.warn("Parent id {} not found for child {}", sectorJson.getParentId(), sectorJson.getId());
-                    } else {
-                        child.setParent(parent);
-                        parent.getChildren().add(child);
-                    }
+        SectorCatalog catalog;
+        try (InputStream is = resource.getInputStream()) {
+            SectorCatalog.Builder builder = parse(is);
+            report(validator.validate(builder));
+            catalog = builder.build();
+        }
+        if (snapshotStore.isEnabled()) {
+            snapshotStore.save(catalog, checksum, validator.getPolicy(), validator.getMaxDepth());
+        }
+        return catalog;
+    }
+
+    /**
+     * Read sectors one object at a time without materializing the whole file.
+     * @param is JSON array of sectors.
+     * @return builder holding the parsed sectors.
+     * @throws IOException if the file cannot be parsed.
+     */
+    private SectorCatalog.Builder parse(InputStream is) throws IOException {
+        SectorCatalog.Builder builder = new SectorCatalog.Builder();
+        try (JsonParser parser = MAPPER.getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of sectors");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                SectorJson sectorJson = MAPPER.readValue(parser, SectorJson.class);
+                if (sectorJson.getId() == null) {
+                    LOGGER.warn("Skipping sector without id: {}", sectorJson.getName());
+                    continue;
                 }
+                Long parentId = sectorJson.getParentId();
+                builder.add(sectorJson.getId(), parentId == null ? SectorCatalog.NO_PARENT : parentId,
+                        sectorJson.getName());
             }
+        }
+        return builder;
+    }
 
-            for (Sector sector : sectorMap.values()) {
-                int lvl = 0;
-                Sector current = sector.getParent();
-                while (current != null) {
-                    lvl++;
-                    current = current.getParent();
-                }
-                sector.setLevel(lvl);
+    /**
+     * Log validation issues and stop the load if the catalog has errors under the fail-fast policy.
+     * Under quarantine the offending sectors are left out when the catalog is built.
+     * @param report validation report.
+     */
+    private void report(SectorCatalogValidationReport report) {
+        LOGGER.info("Validated {} sectors in {} ms: {}", report.getSectorCount(), report.getElapsedMillis(),
+                report.summary());
+        for (SectorCatalogIssue issue : report.getIssues()) {
+            switch (issue.type()) {
+                case ORPHAN -> LOGGER.warn("Parent id {} not found for child {}", issue.parentId(), issue.sectorId());
+                case DEPTH_OUTLIER -> LOGGER.warn("Sector {} is nested deeper than expected", issue.sectorId());
+                default -> LOGGER.error("Sector {} with parent {} failed validation: {}", issue.sectorId(),
+                        issue.parentId(), issue.type());
             }
+        }
+        if (!report.hasErrors()) return;
 
-            for (Sector sector : sectorMap.values()) {
-                entityManager.persist(sector);
+        if (validator.getPolicy() == SectorCatalogValidator.Policy.FAIL_FAST) {
+            throw new IllegalStateException("Sector catalog validation failed: " + report.summary());
+        }
+        LOGGER.warn("Quarantining {} duplicate, {} cyclic and {} unreachable sectors",
+                report.count(SectorCatalogIssue.Type.DUPLICATE_ID), report.count(SectorCatalogIssue.Type.CYCLE),
+                report.count(SectorCatalogIssue.Type.UNDER_CYCLE));
+    }
+
+    /**
+     * Insert catalog rows in pre-order, so parents are always written before their children.
+     * Rows are flushed in JDBC batches and committed in chunks.
+     * @param catalog catalog to persist.
+     */
+    private void persist(SectorCatalog catalog) {
+        for (int start = 0; start < catalog.size(); start += CHUNK_SIZE) {
+            int from = start;
+            int to = Math.min(start + CHUNK_SIZE, catalog.size());
+            transactionTemplate.executeWithoutResult(status -> persistChunk(catalog, from, to));
+        }
+    }
+
+    /**
+     * Persist one chunk of catalog rows.
+     * @param catalog sector catalog.
+     * @param from first index, inclusive.
+     * @param to last index, exclusive.
+     */
+    private void persistChunk(SectorCatalog catalog, int from, int to) {
+        for (int i = from; i < to; i++) {
+            entityManager.persist(toEntity(entityManager, catalog, i));
+            if ((i - from + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
             }
-            entityManager.flush();
-            LOGGER.info("Loaded {} sectors from JSON.", sectorMap.size());
         }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Create sector entity for a catalog row.
+     * @param entityManager entity manager used to reference the parent.
+     * @param catalog sector catalog.
+     * @param index catalog index.
+     * @return new sector entity.
+     */
+    static Sector toEntity(EntityManager entityManager, SectorCatalog catalog, int index) {
+        Sector sector = new Sector();
+        sector.setId(catalog.id(index));
+        applyRow(entityManager, sector, catalog, index);
+        return sector;
     }
 }
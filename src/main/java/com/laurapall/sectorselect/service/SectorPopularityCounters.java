@@ -0,0 +1,319 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorCount;
+import com.laurapall.sectorselect.dto.SectorStatsDto;
+import com.laurapall.sectorselect.dto.SubmissionSectorBitmap;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live counts of how many submissions selected each sector, directly and anywhere in its subtree.
+ * Submission changes are applied as increments once their transaction commits, so reading the
+ * numbers never touches the database. A submission is counted once per ancestor even if it selected
+ * several sectors below it. A background job recounts everything from the database from time to time
+ * to correct any drift, and in the background whenever a read finds that the sector catalog has changed;
+ * until it has finished, the counts of the previous catalog are served. The recount reads one snapshot
+ * of the database; changes committed meanwhile are collected and replayed on the new counts before
+ * they replace the old ones, like the pending changes of SubmissionSectorIndex.
+ */
+@Component
+public class SectorPopularityCounters {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SectorPopularityCounters.class);
+
+    private final SectorService sectorService;
+    private final SubmissionRepository submissionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicReference<Counters> counters = new AtomicReference<>(new Counters(SectorCatalog.empty()));
+    private final Object reconcileLock = new Object();
+    private final AtomicBoolean recountStarted = new AtomicBoolean();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Queue<Change> pending;
+
+    /**
+     * Counters constructor.
+     * @param sectorService sector service providing the catalog.
+     * @param submissionRepository submission repository used to recount.
+     * @param transactionManager transaction manager for the snapshot the recount reads.
+     */
+    public SectorPopularityCounters(SectorService sectorService, SubmissionRepository submissionRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.sectorService = sectorService;
+        this.submissionRepository = submissionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Record that a submission changed its sectors. Inside a transaction the change is applied
+     * after commit, so rolled back writes are never counted.
+     * @param oldSectorIds sectors selected before, empty for a new submission.
+     * @param newSectorIds sectors selected after, empty for a deleted submission.
+     */
+    public void recordChange(Collection<Long> oldSectorIds, Collection<Long> newSectorIds) {
+        Change change = new Change(oldSectorIds, newSectorIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    /**
+     * Get the counts of all sectors selected at least once, directly or below them, in tree order.
+     * If the catalog has changed, a recount is started in the background and the current counts are returned.
+     * @return sector statistics.
+     */
+    public List<SectorStatsDto> getStats() {
+        Counters current = counters.get();
+        if (current.catalog != sectorService.getCatalog()) recountInBackground();
+
+        SectorCatalog catalog = current.catalog;
+        List<SectorStatsDto> result = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            long total = current.total[i].sum();
+            if (total == 0) continue;
+            result.add(new SectorStatsDto(catalog.id(i), catalog.name(i), catalog.level(i),
+                    current.direct[i].sum(), total));
+        }
+        return result;
+    }
+
+    /**
+     * Recount all sectors once the application has started and the catalog is loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStart() {
+        recount();
+    }
+
+    /**
+     * Recount all sectors from the database and replace the live counters.
+     */
+    @Scheduled(fixedDelayString = "${sectorselect.stats.reconcile-interval-ms:60000}",
+            initialDelayString = "${sectorselect.stats.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        recount();
+    }
+
+    /**
+     * Start a recount on its own thread, unless one is already running.
+     */
+    private void recountInBackground() {
+        if (!recountStarted.compareAndSet(false, true)) return;
+        Thread thread = new Thread(() -> {
+            try {
+                synchronized (reconcileLock) {
+                    if (counters.get().catalog != sectorService.getCatalog()) recount();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Sector counter recount after catalog change failed", e);
+            } finally {
+                recountStarted.set(false);
+            }
+        }, "sector-counter-recount");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Build new counters from the database and swap them in. Changes committed while counting are
+     * applied to the old counters and collected, then replayed on the new counters before the swap.
+     * The counts are read in one repeatable read transaction, so a collected change is not also part of
+     * them, unless it committed in the short time between its commit and its after commit callback.
+     */
+    private void recount() {
+        synchronized (reconcileLock) {
+            long started = System.nanoTime();
+            swapLock.writeLock().lock();
+            try {
+                pending = new ConcurrentLinkedQueue<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            Counters fresh = new Counters(sectorService.getCatalog());
+            try {
+                transactionTemplate.executeWithoutResult(status -> count(fresh));
+            } catch (RuntimeException e) {
+                swapLock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            Counters previous;
+            int replayed;
+            swapLock.writeLock().lock();
+            try {
+                replayed = pending.size();
+                for (Change change : pending) {
+                    apply(fresh, change);
+                }
+                pending = null;
+                previous = counters.getAndSet(fresh);
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            long drift = previous.catalog == fresh.catalog ? drift(previous, fresh) : -1;
+            if (drift > 0) {
+                LOGGER.info("Sector counters recounted in {} ms, {} sector(s) had drifted, {} change(s) replayed",
+                        (System.nanoTime() - started) / 1_000_000, drift, replayed);
+            } else {
+                LOGGER.debug("Sector counters recounted in {} ms, {} change(s) replayed",
+                        (System.nanoTime() - started) / 1_000_000, replayed);
+            }
+        }
+    }
+
+    /**
+     * Count all stored selections into new counters.
+     */
+    private void count(Counters fresh) {
+        for (SectorCount count : submissionRepository.countPerSector()) {
+            int index = fresh.catalog.indexOf(count.sectorId());
+            if (index != SectorCatalog.NONE) fresh.direct[index].add(count.count());
+        }
+        for (SectorCount count : submissionRepository.countPerSectorSubtree()) {
+            int index = fresh.catalog.indexOf(count.sectorId());
+            if (index != SectorCatalog.NONE) fresh.total[index].add(count.count());
+        }
+        submissionRepository.forEachSectorBitmap(row -> countBitmap(fresh, row));
+    }
+
+    /**
+     * Apply a change to the current counters, and collect it if a recount is running.
+     */
+    private void apply(Change change) {
+        swapLock.readLock().lock();
+        try {
+            apply(counters.get(), change);
+            if (pending != null) pending.add(change);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a change to counters.
+     * Sectors whose subtree gained or lost the submission are found by walking the parent chain
+     * of every selected sector in the catalog.
+     */
+    private static void apply(Counters current, Change change) {
+        SectorCatalog catalog = current.catalog;
+        BitSet oldDirect = indexes(catalog, change.oldSectorIds());
+        BitSet newDirect = indexes(catalog, change.newSectorIds());
+        BitSet oldCovered = withAncestors(catalog, oldDirect);
+        BitSet newCovered = withAncestors(catalog, newDirect);
+
+        for (int i = oldDirect.nextSetBit(0); i >= 0; i = oldDirect.nextSetBit(i + 1)) {
+            if (!newDirect.get(i)) current.direct[i].decrement();
+        }
+        for (int i = newDirect.nextSetBit(0); i >= 0; i = newDirect.nextSetBit(i + 1)) {
+            if (!oldDirect.get(i)) current.direct[i].increment();
+        }
+        for (int i = oldCovered.nextSetBit(0); i >= 0; i = oldCovered.nextSetBit(i + 1)) {
+            if (!newCovered.get(i)) current.total[i].decrement();
+        }
+        for (int i = newCovered.nextSetBit(0); i >= 0; i = newCovered.nextSetBit(i + 1)) {
+            if (!oldCovered.get(i)) current.total[i].increment();
+        }
+    }
+
+    /**
+     * Count one submission stored as a bitmap into new counters.
+     */
+    private static void countBitmap(Counters counters, SubmissionSectorBitmap row) {
+        BitSet direct = indexes(counters.catalog, SectorBitmapCodec.decodeIds(row.sectorBitmap()));
+        BitSet covered = withAncestors(counters.catalog, direct);
+        for (int i = direct.nextSetBit(0); i >= 0; i = direct.nextSetBit(i + 1)) {
+            counters.direct[i].increment();
+        }
+        for (int i = covered.nextSetBit(0); i >= 0; i = covered.nextSetBit(i + 1)) {
+            counters.total[i].increment();
+        }
+    }
+
+    private static BitSet indexes(SectorCatalog catalog, Collection<Long> sectorIds) {
+        BitSet result = new BitSet(catalog.size());
+        for (Long id : sectorIds) {
+            int index = id == null ? SectorCatalog.NONE : catalog.indexOf(id);
+            if (index != SectorCatalog.NONE) result.set(index);
+        }
+        return result;
+    }
+
+    private static BitSet withAncestors(SectorCatalog catalog, BitSet selected) {
+        BitSet result = new BitSet(catalog.size());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            for (int p = i; p != SectorCatalog.NONE && !result.get(p); p = catalog.parent(p)) {
+                result.set(p);
+            }
+        }
+        return result;
+    }
+
+    private static long drift(Counters previous, Counters fresh) {
+        long drift = 0;
+        for (int i = 0; i < fresh.catalog.size(); i++) {
+            if (previous.total[i].sum() != fresh.total[i].sum()) drift++;
+        }
+        return drift;
+    }
+
+    /**
+     * Sectors of one submission before and after a committed change.
+     */
+    private record Change(Collection<Long> oldSectorIds, Collection<Long> newSectorIds) {
+    }
+
+    /**
+     * Counters of one catalog version, indexed like the catalog.
+     */
+    private static final class Counters {
+        private final SectorCatalog catalog;
+        private final LongAdder[] direct;
+        private final LongAdder[] total;
+
+        Counters(SectorCatalog catalog) {
+            this.catalog = catalog;
+            this.direct = new LongAdder[catalog.size()];
+            this.total = new LongAdder[catalog.size()];
+            for (int i = 0; i < catalog.size(); i++) {
+                direct[i] = new LongAdder();
+                total[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.laurapall.sectorselect.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory name search over a sector catalog.
+ * Names are folded to lower case without diacritics. Queries shorter than three characters
+ * match word prefixes through a sorted token array, longer ones use trigram postings
+ * and are verified as substrings.
+ */
+public class SectorSearchIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final String[] normalized;
+    private final String[] tokens;
+    private final int[] tokenOwners;
+    private final Map<Long, int[]> trigrams;
+
+    /**
+     * Build the index for all sectors of a catalog.
+     * @param catalog sector catalog.
+     */
+    public SectorSearchIndex(SectorCatalog catalog) {
+        int size = catalog.size();
+        normalized = new String[size];
+        List<String> tokenList = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        Map<Long, Postings> postings = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            String name = normalize(catalog.name(i));
+            normalized[i] = name;
+            for (String token : WORD_SEPARATORS.split(name)) {
+                if (token.isEmpty()) continue;
+                tokenList.add(token);
+                ownerList.add(i);
+            }
+            for (int j = 0; j + 3 <= name.length(); j++) {
+                postings.computeIfAbsent(trigram(name, j), key -> new Postings()).add(i);
+            }
+        }
+
+        Integer[] order = new Integer[tokenList.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(tokenList::get));
+        tokens = new String[order.length];
+        tokenOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            tokens[i] = tokenList.get(order[i]);
+            tokenOwners[i] = ownerList.get(order[i]);
+        }
+
+        trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((key, value) -> trigrams.put(key, value.toArray()));
+    }
+
+    /**
+     * Fold text for matching: strip diacritics, lower case and collapse whitespace.
+     * @param text text to fold.
+     * @return normalized text.
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Find sectors whose name matches the query.
+     * Names starting with the query come first, then other matches in catalog order.
+     * @param query search text.
+     * @param limit maximum number of results.
+     * @return matching catalog indexes.
+     */
+    public int[] search(String query, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty() || limit <= 0) return NO_POSTINGS;
+        BitSet matches = needle.length() < 3 ? matchTokenPrefix(needle) : matchSubstring(needle);
+
+        int[] result = new int[Math.min(limit, matches.cardinality())];
+        int count = 0;
+        for (int i = matches.nextSetBit(0); i >= 0 && count < result.length; i = matches.nextSetBit(i + 1)) {
+            if (normalized[i].startsWith(needle)) result[count++] = i;
+        }
+        for (int i = matches.nextSetBit(0); i >= 0 && count < result.length; i = matches.nextSetBit(i + 1)) {
+            if (!normalized[i].startsWith(needle)) result[count++] = i;
+        }
+        return result;
+    }
+
+    /**
+     * Collect sectors with a word starting with the needle.
+     * @param needle normalized query.
+     * @return matching indexes.
+     */
+    private BitSet matchTokenPrefix(String needle) {
+        BitSet matches = new BitSet(normalized.length);
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(needle) < 0) low = mid + 1;
+            else high = mid;
+        }
+        for (int i = low; i < tokens.length && tokens[i].startsWith(needle); i++) {
+            matches.set(tokenOwners[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Collect sectors containing the needle, verifying candidates of the rarest trigram.
+     * @param needle normalized query, at least three characters.
+     * @return matching indexes.
+     */
+    private BitSet matchSubstring(String needle) {
+        BitSet matches = new BitSet(normalized.length);
+        int[] rarest = null;
+        for (int j = 0; j + 3 <= needle.length(); j++) {
+            int[] candidates = trigrams.getOrDefault(trigram(needle, j), NO_POSTINGS);
+            if (rarest == null || candidates.length < rarest.length) rarest = candidates;
+            if (rarest.length == 0) return matches;
+        }
+        for (int candidate : rarest) {
+            if (normalized[candidate].contains(needle)) matches.set(candidate);
+        }
+        return matches;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Growable sorted posting list, ignoring repeated adds of the same index.
+     */
+    private static final class Postings {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int index) {
+            if (size > 0 && items[size - 1] == index) return;
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = index;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
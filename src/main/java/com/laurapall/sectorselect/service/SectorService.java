@@ -1,16 +1,31 @@
 package com.laurapall.sectorselect.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.laurapall.sectorselect.dto.SectorNodeDto;
+import com.laurapall.sectorselect.dto.SectorRow;
+import com.laurapall.sectorselect.dto.SectorSearchResultDto;
 import com.laurapall.sectorselect.dto.SectorTreeDto;
-import com.laurapall.sectorselect.entity.Sector;
 import com.laurapall.sectorselect.repository.SectorRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Service class responsible for all sector-related actions.
@@ -18,8 +33,25 @@ import java.util.Map;
 @Service
 public class SectorService {
 
+    /**
+     * Maximum number of levels returned by one lazy children request.
+     */
+    public static final int MAX_EXPAND_DEPTH = 10;
+
+    /**
+     * Maximum number of results returned by one search request.
+     */
+    public static final int MAX_SEARCH_LIMIT = 50;
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
     private static final Logger LOGGER = LoggerFactory.getLogger(SectorService.class);
     private final SectorRepository sectorRepository;
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicReference<SectorTreeSnapshot> snapshot = new AtomicReference<>();
+    private final Object buildLock = new Object();
+    private final ReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    private volatile Set<Long> retiredSectorIds = Set.of();
 
     /**
      * Service constructor.
@@ -30,30 +62,275 @@ public class SectorService {
     }
 
     /**
-     * Construct a hierarchy tree of all sectors in a database.
+     * Get the hierarchy tree of all sectors from the current snapshot.
      * @return all sectors as SectorTreeDtos in a list.
      */
-    @Transactional(readOnly = true)
     public List<SectorTreeDto> getSectorTree() {
-        List<Sector> allSectors = sectorRepository.findAll();
-        List<Sector> roots = allSectors.stream().filter(s -> s.getParent() == null).toList();
-        Map<Long, SectorTreeDto> sectorTreeDtos = new HashMap<>();
+        return currentSnapshot().getRoots();
+    }
+
+    /**
+     * Get the compact sector catalog of the current snapshot.
+     * @return sector catalog.
+     */
+    public SectorCatalog getCatalog() {
+        return currentSnapshot().getCatalog();
+    }
 
-        for (Sector sector : allSectors) {
-            SectorTreeDto dto = new SectorTreeDto(sector.getId(), sector.getName(), sector.getLevel());
-            sectorTreeDtos.put(sector.getId(), dto);
+    /**
+     * Get the catalog to check the sector ids of a write against.
+     * Inside a transaction sectors cannot be retired until the transaction has ended, so a write that
+     * selected a sector commits before a reload starts looking for submissions that still select it.
+     * This matters for sector bitmaps, which the database does not check against the sector table.
+     * Callers must also treat retired sectors as unknown, see isRetired.
+     * @return current sector catalog.
+     */
+    public SectorCatalog getCatalogForWrite() {
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                return getCatalog();
+            } finally {
+                lock.unlock();
+            }
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return getCatalog();
+    }
 
-        for (Sector sector : allSectors) {
-            SectorTreeDto dto = sectorTreeDtos.get(sector.getId());
-            if (!sector.getChildren().isEmpty()) {
-                for (Sector child : sector.getChildren()) {
-                    SectorTreeDto childDto = sectorTreeDtos.get(child.getId());
-                    if (childDto != null) dto.getChildren().add(childDto);
+    /**
+     * Stop accepting new selections of sectors that a reload is about to remove.
+     * Waits only for write transactions that already got the catalog, so a reload can check for
+     * remaining selections afterwards without holding up writes while it does.
+     * @param sectorIds sectors to retire, empty to accept all sectors of the catalog again.
+     */
+    public void retireSectors(Collection<Long> sectorIds) {
+        Lock lock = catalogLock.writeLock();
+        lock.lock();
+        try {
+            retiredSectorIds = Set.copyOf(sectorIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check if a sector is being removed by a reload and must not be selected any more.
+     * @param sectorId sector id.
+     * @return true if retired, else false.
+     */
+    public boolean isRetired(long sectorId) {
+        Set<Long> retired = retiredSectorIds;
+        return !retired.isEmpty() && retired.contains(sectorId);
+    }
+
+    /**
+     * Write the hierarchy tree as JSON straight to a stream, in pre-order from the catalog arrays.
+     * Produces the same shape as getSectorTree without building a response object graph.
+     * @param out stream to write to, left open.
+     * @throws IOException if writing fails.
+     */
+    public void writeSectorTree(OutputStream out) throws IOException {
+        SectorCatalog catalog = getCatalog();
+        char[] names = catalog.nameBuffer();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            int open = 0;
+            for (int i = 0; i < catalog.size(); i++) {
+                for (; open > catalog.level(i); open--) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
                 }
+                generator.writeStartObject();
+                generator.writeNumberField("id", catalog.id(i));
+                generator.writeFieldName("name");
+                generator.writeString(names, catalog.nameOffset(i), catalog.nameLength(i));
+                generator.writeNumberField("level", catalog.level(i));
+                generator.writeArrayFieldStart("children");
+                open++;
+            }
+            for (; open > 0; open--) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Get all descendants of a sector in pre-order from the catalog.
+     * @param id sector id.
+     * @return descendant rows, or empty optional if sector does not exist.
+     */
+    public Optional<List<SectorRow>> getDescendants(Long id) {
+        SectorCatalog catalog = getCatalog();
+        int index = catalog.indexOf(id);
+        if (index == SectorCatalog.NONE) return Optional.empty();
+        return Optional.of(catalog.descendants(index));
+    }
+
+    /**
+     * Get all ancestors of a sector from the catalog, root first.
+     * @param id sector id.
+     * @return ancestor rows, or empty optional if sector does not exist.
+     */
+    public Optional<List<SectorRow>> getAncestors(Long id) {
+        SectorCatalog catalog = getCatalog();
+        int index = catalog.indexOf(id);
+        if (index == SectorCatalog.NONE) return Optional.empty();
+        return Optional.of(catalog.ancestors(index));
+    }
+
+    /**
+     * Get root sectors with child counts, expanded to the given depth.
+     * @param depth number of levels to return, clamped between 1 and MAX_EXPAND_DEPTH.
+     * @return root sectors as SectorNodeDtos in a list.
+     */
+    public List<SectorNodeDto> getRootSectors(int depth) {
+        SectorCatalog catalog = getCatalog();
+        return expand(catalog, catalog.firstRoot(), clampDepth(depth));
+    }
+
+    /**
+     * Get children of a sector with child counts, expanded to the given depth.
+     * @param id parent sector id.
+     * @param depth number of levels to return, clamped between 1 and MAX_EXPAND_DEPTH.
+     * @return children as SectorNodeDtos in a list, or empty optional if sector does not exist.
+     */
+    public Optional<List<SectorNodeDto>> getChildSectors(Long id, int depth) {
+        SectorCatalog catalog = getCatalog();
+        int index = catalog.indexOf(id);
+        if (index == SectorCatalog.NONE) {
+            LOGGER.warn("Requested children of unknown sector {}", id);
+            return Optional.empty();
+        }
+        return Optional.of(expand(catalog, catalog.firstChild(index), clampDepth(depth)));
+    }
+
+    /**
+     * Search sectors by name, ignoring case and diacritics, without database access.
+     * @param query search text.
+     * @param limit maximum number of results, clamped between 1 and MAX_SEARCH_LIMIT.
+     * @return matching sectors with their ancestor names.
+     */
+    public List<SectorSearchResultDto> searchSectors(String query, int limit) {
+        SectorTreeSnapshot current = currentSnapshot();
+        SectorCatalog catalog = current.getCatalog();
+        int[] matches = current.getSearchIndex().search(query, Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)));
+
+        List<SectorSearchResultDto> result = new ArrayList<>(matches.length);
+        for (int index : matches) {
+            List<String> path = catalog.ancestors(index).stream().map(SectorRow::name).toList();
+            result.add(new SectorSearchResultDto(catalog.id(index), catalog.name(index), catalog.level(index), path));
+        }
+        return result;
+    }
+
+    /**
+     * Get the snapshot for the current catalog version, building it if it is missing or stale.
+     * Concurrent callers wait for a single build instead of each querying the database.
+     * @return current sector tree snapshot.
+     */
+    public SectorTreeSnapshot currentSnapshot() {
+        SectorTreeSnapshot current = snapshot.get();
+        if (isCurrent(current)) return current;
+
+        synchronized (buildLock) {
+            current = snapshot.get();
+            if (isCurrent(current)) return current;
+
+            SectorTreeSnapshot built = buildSnapshot(catalogVersion.get());
+            snapshot.set(built);
+            return built;
+        }
+    }
+
+    /**
+     * Mark the sector catalog as changed so the next read builds a new snapshot.
+     * @return new catalog version.
+     */
+    public long invalidateCatalog() {
+        long version = catalogVersion.incrementAndGet();
+        LOGGER.info("Sector catalog invalidated, now at version {}", version);
+        return version;
+    }
+
+    /**
+     * Invalidate the catalog and build the new snapshot right away.
+     */
+    public void refreshCatalog() {
+        invalidateCatalog();
+        currentSnapshot();
+    }
+
+    /**
+     * Replace the current snapshot with one built from an already loaded catalog.
+     * Readers switch to the new version atomically and no database read is needed.
+     * @param catalog new sector catalog.
+     */
+    public void publishCatalog(SectorCatalog catalog) {
+        SectorTreeSnapshot published;
+        synchronized (buildLock) {
+            published = new SectorTreeSnapshot(catalogVersion.incrementAndGet(), catalog);
+            snapshot.set(published);
+        }
+        LOGGER.info("Published sector catalog version {} with {} total sectors", published.getVersion(), catalog.size());
+    }
+
+    /**
+     * Turn a sibling chain into nodes and attach children until depth runs out.
+     * @param catalog sector catalog.
+     * @param first first sibling index, or NONE.
+     * @param depth remaining depth, at least 1.
+     * @return nodes of the sibling chain.
+     */
+    private List<SectorNodeDto> expand(SectorCatalog catalog, int first, int depth) {
+        List<SectorNodeDto> result = new ArrayList<>();
+        for (int i = first; i != SectorCatalog.NONE; i = catalog.nextSibling(i)) {
+            SectorNodeDto dto = new SectorNodeDto(catalog.id(i), catalog.name(i), catalog.level(i), catalog.childCount(i));
+            if (depth > 1 && catalog.firstChild(i) != SectorCatalog.NONE) {
+                dto.setChildren(expand(catalog, catalog.firstChild(i), depth - 1));
             }
+            result.add(dto);
         }
-        LOGGER.info("Built sector tree with {} root(s) and {} total sectors", roots.size(), allSectors.size());
-        return roots.stream().map(r -> sectorTreeDtos.get(r.getId())).toList();
+        return result;
+    }
+
+    /**
+     * Clamp requested depth to the allowed range.
+     * @param depth requested depth.
+     * @return depth between 1 and MAX_EXPAND_DEPTH.
+     */
+    private int clampDepth(int depth) {
+        return Math.max(1, Math.min(depth, MAX_EXPAND_DEPTH));
+    }
+
+    /**
+     * Check if snapshot exists and matches the current catalog version.
+     * @param candidate snapshot to check.
+     * @return true if snapshot can be served, else false.
+     */
+    private boolean isCurrent(SectorTreeSnapshot candidate) {
+        return candidate != null && candidate.getVersion() == catalogVersion.get();
+    }
+
+    /**
+     * Construct a hierarchy tree of all sectors in a database.
+     * Uses one flat query and lays the rows out as a compact catalog in linear time.
+     * @param version catalog version the snapshot is built for.
+     * @return new snapshot.
+     */
+    private SectorTreeSnapshot buildSnapshot(long version) {
+        SectorCatalog catalog = SectorCatalog.of(sectorRepository.findAllRows());
+        SectorTreeSnapshot built = new SectorTreeSnapshot(version, catalog);
+        LOGGER.info("Built sector tree with {} root(s) and {} total sectors", catalog.rootCount(), catalog.size());
+        LOGGER.debug("Sector catalog uses about {} bytes", catalog.footprintBytes());
+        return built;
     }
 }
@@ -0,0 +1,76 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SectorTreeDto;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable view of the sector hierarchy built for one catalog version.
+ */
+@Getter
+public class SectorTreeSnapshot {
+    /**
+     * Catalog version this snapshot was built from.
+     */
+    private final long version;
+
+    /**
+     * Compact catalog used for lookups.
+     */
+    private final SectorCatalog catalog;
+
+    /**
+     * Root sectors with frozen children lists.
+     */
+    private final List<SectorTreeDto> roots;
+
+    /**
+     * Name search index over the same catalog.
+     */
+    private final SectorSearchIndex searchIndex;
+
+    /**
+     * Snapshot constructor.
+     * @param version catalog version.
+     * @param catalog sector catalog.
+     */
+    public SectorTreeSnapshot(long version, SectorCatalog catalog) {
+        this.version = version;
+        this.catalog = catalog;
+        this.roots = buildRoots(catalog);
+        this.searchIndex = new SectorSearchIndex(catalog);
+    }
+
+    /**
+     * Total number of sectors in the snapshot.
+     * @return sector count.
+     */
+    public int getSectorCount() {
+        return catalog.size();
+    }
+
+    /**
+     * Build tree dtos from the catalog. Parents always come before children in pre-order.
+     * @param catalog sector catalog.
+     * @return root dtos.
+     */
+    private static List<SectorTreeDto> buildRoots(SectorCatalog catalog) {
+        SectorTreeDto[] dtos = new SectorTreeDto[catalog.size()];
+        List<SectorTreeDto> roots = new ArrayList<>();
+        for (int i = 0; i < dtos.length; i++) {
+            dtos[i] = new SectorTreeDto(catalog.id(i), catalog.name(i), catalog.level(i));
+            int parent = catalog.parent(i);
+            if (parent == SectorCatalog.NONE) {
+                roots.add(dtos[i]);
+            } else {
+                dtos[parent].getChildren().add(dtos[i]);
+            }
+        }
+        for (SectorTreeDto dto : dtos) {
+            dto.setChildren(List.copyOf(dto.getChildren()));
+        }
+        return List.copyOf(roots);
+    }
+}
@@ -0,0 +1,208 @@
+package com.laurapall.sectorselect.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.laurapall.sectorselect.dto.SubmissionSectorView;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Writes all submissions as newline delimited JSON or CSV while reading them from the database.
+ * Rows come from one streamed query with a fixed fetch size, and only the submission being written is
+ * held in memory, so the export takes the same memory for any table size.
+ * Every submission is written as one complete line in id order. A client whose download broke off drops
+ * an incomplete last line and continues with the id of the last complete one.
+ */
+@Component
+public class SubmissionExporter {
+
+    /**
+     * Export file format.
+     */
+    public enum Format {
+        /**
+         * One JSON object per line.
+         */
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+        /**
+         * Header line, then one row per submission with sector ids separated by spaces.
+         */
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * Get format by name.
+         * @param name ndjson or csv, any case.
+         * @return format.
+         * @throws IllegalArgumentException if the name is unknown.
+         */
+        public static Format of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "id,name,version,sector_ids\r\n";
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionExporter.class);
+
+    private final SubmissionRepository submissionRepository;
+
+    /**
+     * Exporter constructor.
+     * @param submissionRepository submission repository.
+     */
+    public SubmissionExporter(SubmissionRepository submissionRepository) {
+        this.submissionRepository = submissionRepository;
+    }
+
+    /**
+     * Write submissions to a stream, in id order. The read transaction stays open until the last row is written.
+     * @param out target stream, not closed.
+     * @param format output format.
+     * @param after write only submissions with a greater id, null to start from the first one.
+     * @throws IOException if writing fails, e.g. because the client went away.
+     */
+    @Transactional(readOnly = true)
+    public void export(OutputStream out, Format format, Long after) throws IOException {
+        long started = System.nanoTime();
+        long written;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<SubmissionSectorView> rows = submissionRepository.streamExportRows(after == null ? 0 : after)) {
+            written = format == Format.CSV ? writeCsv(rows, writer) : writeNdjson(rows, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        LOGGER.info("Exported {} submissions as {} in {} ms", written, format.getExtension(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long writeNdjson(Stream<SubmissionSectorView> rows, Writer writer) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.setRootValueSeparator(null);
+            return forEachSubmission(rows, (first, sectorIds) -> {
+                generator.writeStartObject();
+                generator.writeNumberField("id", first.getId());
+                generator.writeStringField("name", first.getName());
+                if (first.getVersion() != null) generator.writeNumberField("version", first.getVersion());
+                generator.writeArrayFieldStart("sectorIds");
+                for (Long sectorId : sectorIds) {
+                    generator.writeNumber(sectorId);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private long writeCsv(Stream<SubmissionSectorView> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        return forEachSubmission(rows, (first, sectorIds) -> {
+            writer.write(Long.toString(first.getId()));
+            writer.write(',');
+            writeCsvField(writer, first.getName());
+            writer.write(',');
+            if (first.getVersion() != null) writer.write(Long.toString(first.getVersion()));
+            writer.write(',');
+            for (int i = 0; i < sectorIds.size(); i++) {
+                if (i > 0) writer.write(' ');
+                writer.write(Long.toString(sectorIds.get(i)));
+            }
+            writer.write("\r\n");
+        });
+    }
+
+    /**
+     * Quote a CSV field if it contains a separator, quote or line break, doubling inner quotes.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Group joined rows into submissions and pass each one on once all its rows have been read.
+     * Rows of one submission must be next to each other. Only one submission is held at a time.
+     * @param rows submission and sector rows.
+     * @param action called with the first row of a submission and its sector ids.
+     * @return number of submissions.
+     */
+    private static long forEachSubmission(Stream<SubmissionSectorView> rows, SubmissionWriter action) {
+        List<Long> sectorIds = new ArrayList<>();
+        SubmissionSectorView[] first = {null};
+        long[] count = {0};
+        rows.forEachOrdered(row -> {
+            if (first[0] == null || !first[0].getId().equals(row.getId())) {
+                if (first[0] != null) {
+                    write(action, first[0], sectorIds);
+                    count[0]++;
+                    sectorIds.clear();
+                }
+                first[0] = row;
+            }
+            if (row.getSectorBitmap() != null) {
+                sectorIds.addAll(SectorBitmapCodec.decodeIds(row.getSectorBitmap()));
+            } else if (row.getSectorId() != null) {
+                sectorIds.add(row.getSectorId());
+            }
+        });
+        if (first[0] != null) {
+            write(action, first[0], sectorIds);
+            count[0]++;
+        }
+        return count[0];
+    }
+
+    private static void write(SubmissionWriter action, SubmissionSectorView first, List<Long> sectorIds) {
+        try {
+            action.write(first, sectorIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SubmissionWriter {
+        void write(SubmissionSectorView first, List<Long> sectorIds) throws IOException;
+    }
+}
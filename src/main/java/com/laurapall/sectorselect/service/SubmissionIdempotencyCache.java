@@ -0,0 +1,184 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response to a submission per Idempotency-Key, so a retried or double clicked
+ * submit gets the first response back instead of creating another submission.
+ * Entries are kept for a limited time and the number of finished entries is bounded; the oldest go first.
+ * A request arriving while the first one with the same key is still running waits for its result.
+ * Client errors are not remembered: nothing was saved, and a retry may be valid, e.g. with another If-Match.
+ */
+@Component
+public class SubmissionIdempotencyCache {
+
+    /**
+     * Longest accepted key.
+     */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionIdempotencyCache.class);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Cache constructor.
+     * @param maxEntries maximum number of remembered keys.
+     * @param ttlSeconds how long a key is remembered after its first use.
+     * @param waitSeconds how long a duplicate request waits for the first one to finish.
+     */
+    public SubmissionIdempotencyCache(@Value("${sectorselect.submission.idempotency-max-entries:10000}") int maxEntries,
+                                      @Value("${sectorselect.submission.idempotency-ttl-seconds:86400}") long ttlSeconds,
+                                      @Value("${sectorselect.submission.idempotency-wait-seconds:30}") long waitSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+    }
+
+    /**
+     * Run a submission once per key.
+     * The first call with a key runs the action and stores its response. Later calls with the same key
+     * and the same request get the stored response, waiting for it if it is not ready yet.
+     * @param key idempotency key sent by the client.
+     * @param request submission request.
+     * @param action action that saves the submission.
+     * @return stored or new response, unprocessable entity if the key was used for a different request,
+     * or conflict if the first request is still running after the wait time.
+     */
+    public ResponseEntity<SubmissionResponse> execute(String key, SubmissionRequest request,
+                                                      Supplier<ResponseEntity<SubmissionResponse>> action) {
+        Fingerprint fingerprint = Fingerprint.of(request);
+        while (true) {
+            Entry entry;
+            boolean owner = false;
+            synchronized (entries) {
+                long now = System.currentTimeMillis();
+                evictExpired(now);
+                entry = entries.get(key);
+                if (entry == null) {
+                    entry = new Entry(fingerprint, now + ttlMillis);
+                    entries.put(key, entry);
+                    evictOverflow();
+                    owner = true;
+                }
+            }
+
+            if (!entry.fingerprint.equals(fingerprint)) {
+                LOGGER.warn("Idempotency key {} reused for a different submission", key);
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            if (owner) return run(key, entry, action);
+
+            try {
+                return entry.result.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (ExecutionException e) {
+                // First request failed or was rejected, and was forgotten; try again as the owner.
+            }
+        }
+    }
+
+    /**
+     * Number of remembered keys, including running ones.
+     * @return entry count.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Run the action for a new key. If it fails or is rejected with a client error the key is forgotten,
+     * so the client can retry it.
+     */
+    private ResponseEntity<SubmissionResponse> run(String key, Entry entry,
+                                                   Supplier<ResponseEntity<SubmissionResponse>> action) {
+        try {
+            ResponseEntity<SubmissionResponse> response = action.get();
+            if (response.getStatusCode().is4xxClientError()) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(new IllegalStateException("Rejected with " + response.getStatusCode()));
+            } else {
+                entry.result.complete(response);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drop expired entries. All entries live equally long, so they expire in insertion order.
+     */
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && iterator.next().expiresAt <= now) {
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Drop the oldest finished entries above the limit. Running entries stay, or a duplicate
+     * arriving meanwhile would run the submission a second time.
+     */
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().result.isDone()) iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final Fingerprint fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<ResponseEntity<SubmissionResponse>> result = new CompletableFuture<>();
+
+        Entry(Fingerprint fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Request fields a replay has to match.
+     */
+    private record Fingerprint(String name, List<Long> sectorIds, Boolean agree, Long editSubmissionId,
+                               Long version) {
+        static Fingerprint of(SubmissionRequest request) {
+            return new Fingerprint(request.getName(),
+                    request.getSectorIds() == null ? null : new ArrayList<>(request.getSectorIds()),
+                    request.getAgree(), request.getEditSubmissionId(), request.getVersion());
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.laurapall.sectorselect.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionImportReject;
+import com.laurapall.sectorselect.dto.SubmissionImportStatus;
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Imports submissions from a newline delimited JSON file in the import directory, one request per line.
+ * The file runs through three stages connected by bounded queues: parse and validate, each with a pool of
+ * workers, and write, which saves valid requests in chunks of one transaction each through the batch path
+ * of SubmissionService. A reader thread feeds the parse stage with blocks of lines. A full queue blocks the
+ * stage before it, so memory stays bounded however fast the file can be read.
+ * Rejected lines are written with their line number and reasons to a rejects file next to the input.
+ * The workers reject lines concurrently, so the file is not in line order; sort it by line number if that
+ * matters. Only one import runs at a time.
+ */
+@Component
+public class SubmissionImporter {
+
+    /**
+     * Maximum number of rejects included in a status response; the rejects file has all of them.
+     */
+    static final int MAX_SAMPLE_REJECTS = 100;
+
+    /**
+     * Number of finished imports whose status can still be read.
+     */
+    static final int MAX_REMEMBERED_IMPORTS = 20;
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // Unknown fields are ignored, as for requests to the submit endpoint.
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionImporter.class);
+
+    private final SubmissionService submissionService;
+    private final SectorService sectorService;
+    private final Path directory;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final int blockLines;
+    private final int chunkSize;
+    private final LinkedHashMap<String, Job> jobs = new LinkedHashMap<>();
+    private Job running;
+
+    /**
+     * Importer constructor.
+     * @param submissionService service used to validate and save submissions.
+     * @param sectorService sector service, its catalog is used to check sector ids.
+     * @param directory directory import files are read from.
+     * @param parallelism number of parse workers and of validate workers.
+     * @param queueCapacity maximum number of blocks waiting between two stages.
+     * @param blockLines number of lines passed between stages at once.
+     * @param chunkSize number of submissions saved in one transaction.
+     */
+    public SubmissionImporter(SubmissionService submissionService, SectorService sectorService,
+                              @Value("${sectorselect.import.directory:${java.io.tmpdir}/sectorselect/import}") Path directory,
+                              @Value("${sectorselect.import.parallelism:4}") int parallelism,
+                              @Value("${sectorselect.import.queue-capacity:64}") int queueCapacity,
+                              @Value("${sectorselect.import.block-lines:500}") int blockLines,
+                              @Value("${sectorselect.import.chunk-size:1000}") int chunkSize) {
+        this.submissionService = submissionService;
+        this.sectorService = sectorService;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.parallelism = Math.max(1, parallelism);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.blockLines = Math.max(1, blockLines);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Start importing a file in the background.
+     * @param fileName name of a file in the import directory.
+     * @return status of the started import.
+     * @throws IllegalArgumentException if the name points outside the import directory or the file does not exist.
+     * @throws IllegalStateException if another import is still running.
+     * @throws IOException if the rejects file cannot be created.
+     */
+    public SubmissionImportStatus start(String fileName) throws IOException {
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("Import file must be inside the import directory");
+        }
+        if (!Files.isRegularFile(file)) throw new IllegalArgumentException("Import file not found: " + fileName);
+
+        Job job;
+        synchronized (jobs) {
+            if (running != null) throw new IllegalStateException("Import " + running.id + " is still running");
+            Path rejectsFile = file.resolveSibling(file.getFileName() + ".rejects.ndjson");
+            job = new Job(UUID.randomUUID().toString(), file, rejectsFile,
+                    Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8));
+            running = job;
+            jobs.put(job.id, job);
+            Iterator<Job> oldest = jobs.values().iterator();
+            while (jobs.size() > MAX_REMEMBERED_IMPORTS && oldest.hasNext()) {
+                if (oldest.next() != running) oldest.remove();
+            }
+        }
+
+        Thread thread = new Thread(() -> run(job), "submission-import-write");
+        thread.setDaemon(true);
+        thread.start();
+        return job.toStatus();
+    }
+
+    /**
+     * Get progress of an import.
+     * @param id import id returned by start.
+     * @return status, or empty optional if the import is unknown.
+     */
+    public Optional<SubmissionImportStatus> status(String id) {
+        synchronized (jobs) {
+            Job job = jobs.get(id);
+            return job == null ? Optional.empty() : Optional.of(job.toStatus());
+        }
+    }
+
+    /**
+     * Run the pipeline. The calling thread is the write stage.
+     * @param job import to run.
+     */
+    private void run(Job job) {
+        LOGGER.info("Import {} of {} started", job.id, job.file.getFileName());
+        SectorCatalog catalog = sectorService.getCatalog();
+        BlockingQueue<Block<String>> lines = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Block<SubmissionRequest>> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Block<SubmissionRequest>> validated = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger parsing = new AtomicInteger(parallelism);
+        AtomicInteger validating = new AtomicInteger(parallelism);
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> read(job, lines), "submission-import-read"));
+        for (int i = 1; i <= parallelism; i++) {
+            threads.add(new Thread(() -> stage(job, lines, parsed, parsing, parallelism, line -> parse(job, line)),
+                    "submission-import-parse-" + i));
+            threads.add(new Thread(() -> stage(job, parsed, validated, validating, 1,
+                    line -> validate(job, line, catalog)), "submission-import-validate-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            write(job, validated);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            threads.forEach(Thread::interrupt);
+            job.fail("import was interrupted");
+        } catch (RuntimeException e) {
+            LOGGER.error("Import {} failed", job.id, e);
+            threads.forEach(Thread::interrupt);
+            job.fail(e.getMessage());
+        } finally {
+            job.finish();
+            synchronized (jobs) {
+                running = null;
+            }
+        }
+        SubmissionImportStatus status = job.toStatus();
+        LOGGER.info("Import {} {}: {} lines, {} written, {} rejected in {} ms ({} lines/s)", job.id,
+                status.getState().name().toLowerCase(Locale.ROOT), status.getLinesRead(), status.getWritten(),
+                status.getRejected(), status.getElapsedMillis(), status.getLinesPerSecond());
+    }
+
+    /**
+     * Read the file in blocks of lines, then tell every parse worker that the input has ended.
+     */
+    private void read(Job job, BlockingQueue<Block<String>> out) {
+        try (BufferedReader reader = Files.newBufferedReader(job.file, StandardCharsets.UTF_8)) {
+            List<Line<String>> block = new ArrayList<>(blockLines);
+            long number = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                number++;
+                job.linesRead.increment();
+                if (text.isBlank()) continue;
+                block.add(new Line<>(number, text));
+                if (block.size() == blockLines) {
+                    out.put(new Block<>(block));
+                    block = new ArrayList<>(blockLines);
+                }
+            }
+            if (!block.isEmpty()) out.put(new Block<>(block));
+        } catch (IOException e) {
+            LOGGER.error("Import {} could not read {}", job.id, job.file, e);
+            job.fail("file could not be read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        putEnd(out, parallelism);
+    }
+
+    /**
+     * Worker of a parallel stage. Applies a step to every line, keeping lines for which it returns a value,
+     * until the input has ended. The last worker to finish tells the next stage that its input has ended.
+     * @param in input queue.
+     * @param out output queue.
+     * @param remaining workers of this stage still running.
+     * @param downstream number of workers of the next stage.
+     * @param step step for one line, returns null for a rejected line.
+     */
+    private <I, O> void stage(Job job, BlockingQueue<Block<I>> in, BlockingQueue<Block<O>> out,
+                              AtomicInteger remaining, int downstream, Function<Line<I>, O> step) {
+        try {
+            while (true) {
+                Block<I> block = in.take();
+                if (block.isEnd()) break;
+                List<Line<O>> kept = new ArrayList<>(block.lines().size());
+                for (Line<I> line : block.lines()) {
+                    O value = apply(job, step, line);
+                    if (value != null) kept.add(new Line<>(line.number(), value));
+                }
+                if (!kept.isEmpty()) out.put(new Block<>(kept));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (remaining.decrementAndGet() == 0) putEnd(out, downstream);
+    }
+
+    /**
+     * Apply a step to one line, rejecting the line instead of stopping the worker if the step fails.
+     */
+    private <I, O> O apply(Job job, Function<Line<I>, O> step, Line<I> line) {
+        try {
+            return step.apply(line);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Import {} could not process line {}", job.id, line.number(), e);
+            reject(job, line.number(), List.of("line could not be processed"));
+            return null;
+        }
+    }
+
+    private SubmissionRequest parse(Job job, Line<String> line) {
+        try {
+            SubmissionRequest request = MAPPER.readValue(line.value(), SubmissionRequest.class);
+            if (request == null) reject(job, line.number(), List.of("line is not a JSON object"));
+            return request;
+        } catch (JsonProcessingException e) {
+            reject(job, line.number(), List.of("invalid JSON: " + e.getOriginalMessage()));
+            return null;
+        }
+    }
+
+    private SubmissionRequest validate(Job job, Line<SubmissionRequest> line, SectorCatalog catalog) {
+        List<String> errors = submissionService.validate(line.value(), catalog);
+        if (line.value().getEditSubmissionId() != null) errors.add("an import cannot edit submissions");
+        if (errors.isEmpty()) return line.value();
+        reject(job, line.number(), errors);
+        return null;
+    }
+
+    /**
+     * Save validated requests in chunks, one transaction per chunk, until the input has ended.
+     */
+    private void write(Job job, BlockingQueue<Block<SubmissionRequest>> in) throws InterruptedException {
+        List<Line<SubmissionRequest>> chunk = new ArrayList<>(chunkSize);
+        long lastProgress = System.nanoTime();
+        while (true) {
+            Block<SubmissionRequest> block = in.take();
+            if (block.isEnd()) break;
+            for (Line<SubmissionRequest> line : block.lines()) {
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            if (System.nanoTime() - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = System.nanoTime();
+                SubmissionImportStatus status = job.toStatus();
+                LOGGER.info("Import {}: {} lines read, {} written, {} rejected, {} lines/s, {} written/s", job.id,
+                        status.getLinesRead(), status.getWritten(), status.getRejected(),
+                        status.getLinesPerSecond(), status.getWrittenPerSecond());
+            }
+        }
+        if (!chunk.isEmpty()) writeChunk(job, chunk);
+    }
+
+    private void writeChunk(Job job, List<Line<SubmissionRequest>> chunk) {
+        List<SubmissionRequest> requests = chunk.stream().map(Line::value).toList();
+        try {
+            SubmissionBatchResponse response = submissionService.createSubmissions(requests);
+            for (int i = 0; i < chunk.size(); i++) {
+                SubmissionResponse result = response.getResults().get(i);
+                if (result.isValid()) {
+                    job.written.increment();
+                } else {
+                    reject(job, chunk.get(i).number(), result.getErrors());
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Import {} failed to save {} submission(s) from line {}", job.id, chunk.size(),
+                    chunk.get(0).number(), e);
+            for (Line<SubmissionRequest> line : chunk) {
+                reject(job, line.number(), List.of("submission could not be saved"));
+            }
+        }
+    }
+
+    private void reject(Job job, long line, List<String> errors) {
+        SubmissionImportReject reject = new SubmissionImportReject(line, errors);
+        job.rejected.increment();
+        synchronized (job) {
+            if (job.sample.size() < MAX_SAMPLE_REJECTS) job.sample.add(reject);
+            if (job.rejectsWriter == null) return;
+            try {
+                job.rejectsWriter.write(MAPPER.writeValueAsString(reject));
+                job.rejectsWriter.write('\n');
+            } catch (IOException e) {
+                LOGGER.error("Import {} could not write rejects file, continuing without it", job.id, e);
+                job.closeRejects();
+            }
+        }
+    }
+
+    private static <T> void putEnd(BlockingQueue<Block<T>> out, int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                out.put(Block.end());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One line of the file and what has been made of it so far.
+     */
+    private record Line<T>(long number, T value) {
+    }
+
+    /**
+     * Lines passed between stages at once. A block without lines marks the end of the input.
+     */
+    private record Block<T>(List<Line<T>> lines) {
+        static <E> Block<E> end() {
+            return new Block<>(null);
+        }
+
+        boolean isEnd() {
+            return lines == null;
+        }
+    }
+
+    /**
+     * Progress of one import, updated by all stages.
+     */
+    private static final class Job {
+        private final String id;
+        private final Path file;
+        private final Path rejectsFile;
+        private final long startedAt = System.nanoTime();
+        private final LongAdder linesRead = new LongAdder();
+        private final LongAdder written = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final List<SubmissionImportReject> sample = new ArrayList<>();
+        private BufferedWriter rejectsWriter;
+        private volatile String error;
+        private volatile long finishedAt;
+
+        Job(String id, Path file, Path rejectsFile, BufferedWriter rejectsWriter) {
+            this.id = id;
+            this.file = file;
+            this.rejectsFile = rejectsFile;
+            this.rejectsWriter = rejectsWriter;
+        }
+
+        void fail(String message) {
+            if (error == null) error = message;
+        }
+
+        synchronized void finish() {
+            closeRejects();
+            finishedAt = System.nanoTime();
+        }
+
+        synchronized void closeRejects() {
+            if (rejectsWriter == null) return;
+            try {
+                rejectsWriter.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close rejects file {}", rejectsFile, e);
+            }
+            rejectsWriter = null;
+        }
+
+        synchronized SubmissionImportStatus toStatus() {
+            long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - startedAt));
+            SubmissionImportStatus status = new SubmissionImportStatus();
+            status.setId(id);
+            status.setFile(file.getFileName().toString());
+            status.setState(finishedAt == 0 ? SubmissionImportStatus.State.RUNNING
+                    : error == null ? SubmissionImportStatus.State.DONE : SubmissionImportStatus.State.FAILED);
+            status.setLinesRead(linesRead.sum());
+            status.setWritten(written.sum());
+            status.setRejected(rejected.sum());
+            status.setElapsedMillis(elapsedMillis);
+            status.setLinesPerSecond(status.getLinesRead() * 1000 / elapsedMillis);
+            status.setWrittenPerSecond(status.getWritten() * 1000 / elapsedMillis);
+            status.setRejectsFile(rejectsFile.getFileName().toString());
+            status.setSampleRejects(List.copyOf(sample));
+            status.setError(error);
+            return status;
+        }
+    }
+}
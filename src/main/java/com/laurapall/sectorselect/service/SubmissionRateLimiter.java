@@ -0,0 +1,146 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SubmissionRateLimitStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast each client may submit, and how many submissions are saved at the same time.
+ * The per client limit is a token bucket in its GCRA form: a bucket is one long holding the time at which
+ * it is full again, moved forward by one emission interval per request with a compare and set. Buckets live
+ * in a fixed array of stripes chosen by the hash of the client key, so memory does not grow with the number
+ * of clients and nothing has to be evicted. Clients whose keys land on the same stripe share one bucket;
+ * with enough stripes that only happens to few of them, and it can make a limit stricter, never looser.
+ * The global limit is a semaphore taken without waiting, so a request over the limit is shed at once
+ * instead of holding a server thread while it queues for a database connection.
+ */
+@Component
+public class SubmissionRateLimiter {
+
+    /**
+     * Result of a per client check that let the request through.
+     */
+    public static final long ALLOWED = 0;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int stripeMask;
+    private final AtomicLongArray buckets;
+    private final long origin = System.nanoTime();
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByRate = new LongAdder();
+    private final LongAdder rejectedByConcurrency = new LongAdder();
+
+    /**
+     * Rate limiter constructor.
+     * @param requestsPerSecond sustained requests per second allowed per client, 0 or less for no limit.
+     * @param burst requests a client may send at once after being idle.
+     * @param stripes number of buckets, rounded up to a power of two.
+     * @param maxConcurrent submissions processed at the same time, 0 or less for no limit.
+     */
+    public SubmissionRateLimiter(@Value("${sectorselect.rate-limit.requests-per-second:10}") double requestsPerSecond,
+                                 @Value("${sectorselect.rate-limit.burst:20}") int burst,
+                                 @Value("${sectorselect.rate-limit.stripes:4096}") int stripes,
+                                 @Value("${sectorselect.rate-limit.max-concurrent:10}") int maxConcurrent) {
+        this.intervalNanos = requestsPerSecond > 0
+                ? Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond))
+                : 0;
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        int size = Integer.highestOneBit(Math.max(1, Math.min(stripes, 1 << 20)) * 2 - 1);
+        this.stripeMask = size - 1;
+        this.buckets = new AtomicLongArray(intervalNanos > 0 ? size : 0);
+        this.maxConcurrent = maxConcurrent;
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+    }
+
+    /**
+     * Take one request from the bucket of a client.
+     * @param client client key, e.g. its address.
+     * @return ALLOWED, or nanoseconds until the client may send the next request.
+     */
+    public long acquire(String client) {
+        return acquire(client, System.nanoTime());
+    }
+
+    /**
+     * Take one request from the bucket of a client at a given time.
+     * @param client client key, e.g. its address.
+     * @param nanoTime current System.nanoTime value.
+     * @return ALLOWED, or nanoseconds until the client may send the next request.
+     */
+    public long acquire(String client, long nanoTime) {
+        if (intervalNanos == 0) return ALLOWED;
+        int stripe = stripe(client);
+        // Offset from creation so an untouched bucket (0) is always in the past.
+        long now = nanoTime - origin + toleranceNanos + intervalNanos;
+        while (true) {
+            long full = buckets.get(stripe);
+            long start = Math.max(full, now);
+            if (start - now > toleranceNanos) {
+                rejectedByRate.increment();
+                return start - toleranceNanos - now;
+            }
+            if (buckets.compareAndSet(stripe, full, start + intervalNanos)) return ALLOWED;
+        }
+    }
+
+    /**
+     * Give back a request taken with acquire that was not processed after all, e.g. because it was shed.
+     * @param client client key the request was taken for.
+     */
+    public void refund(String client) {
+        if (intervalNanos == 0) return;
+        int stripe = stripe(client);
+        long full;
+        do {
+            full = buckets.get(stripe);
+        } while (!buckets.compareAndSet(stripe, full, full - intervalNanos));
+    }
+
+    /**
+     * Start processing a submission if fewer than the maximum are in progress. Never waits.
+     * Every successful call must be followed by one call to exit.
+     * @return true if the submission may be processed, else false.
+     */
+    public boolean tryEnter() {
+        if (permits == null || permits.tryAcquire()) {
+            allowed.increment();
+            return true;
+        }
+        rejectedByConcurrency.increment();
+        return false;
+    }
+
+    /**
+     * Finish processing a submission started with tryEnter.
+     */
+    public void exit() {
+        if (permits != null) permits.release();
+    }
+
+    /**
+     * Get request counters since startup.
+     * @return counters and current number of submissions in progress.
+     */
+    public SubmissionRateLimitStats getStats() {
+        SubmissionRateLimitStats stats = new SubmissionRateLimitStats();
+        stats.setAllowed(allowed.sum());
+        stats.setRejectedByRate(rejectedByRate.sum());
+        stats.setRejectedByConcurrency(rejectedByConcurrency.sum());
+        stats.setInFlight(permits == null ? 0 : maxConcurrent - permits.availablePermits());
+        stats.setMaxConcurrent(maxConcurrent);
+        return stats;
+    }
+
+    private int stripe(String client) {
+        int hash = client.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+}
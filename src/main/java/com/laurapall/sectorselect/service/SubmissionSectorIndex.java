@@ -0,0 +1,243 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SubmissionIdPageDto;
+import com.laurapall.sectorselect.dto.SubmissionSectorPair;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index from sector id to the ids of submissions that selected it.
+ * Each sector keeps a compressed bitmap of submission ids, so a subtree query is a union of the
+ * bitmaps in the subtree's catalog range and never reaches the database.
+ * The index is built from the database, from join rows and sector bitmaps alike, once the application
+ * has started and then kept current by SubmissionService, which reports every change after its
+ * transaction commits.
+ * Submission ids are stored as unsigned 32-bit values, which covers ids up to 4 294 967 295.
+ */
+@Component
+public class SubmissionSectorIndex {
+
+    /**
+     * Maximum number of ids returned in one page.
+     */
+    public static final int MAX_PAGE_SIZE = 10_000;
+
+    private static final long MAX_SUBMISSION_ID = 0xFFFF_FFFFL;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionSectorIndex.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final SectorService sectorService;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, RoaringBitmap> bySector = new HashMap<>();
+    private List<Change> pending;
+    private volatile boolean ready;
+
+    /**
+     * Index constructor.
+     * @param submissionRepository submission repository used for the initial build.
+     * @param sectorService sector service providing the hierarchy for subtree queries.
+     * @param transactionManager transaction manager for the streamed initial read.
+     */
+    public SubmissionSectorIndex(SubmissionRepository submissionRepository, SectorService sectorService,
+                                 PlatformTransactionManager transactionManager) {
+        this.submissionRepository = submissionRepository;
+        this.sectorService = sectorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Build the index from all stored selections. Changes committed while building are
+     * collected and replayed on the new index before it replaces the old one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, RoaringBitmap> built = new HashMap<>();
+        long pairs;
+        try {
+            pairs = transactionTemplate.execute(status -> {
+                long[] count = {0};
+                try (Stream<SubmissionSectorPair> stream = submissionRepository.streamAllSectorPairs()) {
+                    stream.forEach(pair -> {
+                        if (add(built, pair.sectorId(), pair.submissionId())) count[0]++;
+                    });
+                }
+                submissionRepository.forEachSectorBitmap(row -> {
+                    for (Long sectorId : SectorBitmapCodec.decodeIds(row.sectorBitmap())) {
+                        if (add(built, sectorId, row.submissionId())) count[0]++;
+                    }
+                });
+                return count[0];
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        built.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            for (Change change : pending) {
+                change.applyTo(built);
+            }
+            pending = null;
+            bySector = built;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Indexed {} selections of {} sectors in {} ms", pairs, built.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Check if the initial build has finished.
+     * @return true if queries can be answered, else false.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Record that a submission changed its sectors. Inside a transaction the change is applied
+     * after commit, so rolled back writes never show up.
+     * @param submissionId submission id.
+     * @param oldSectorIds sectors selected before, empty for a new submission.
+     * @param newSectorIds sectors selected after, empty for a deleted submission.
+     */
+    public void recordChange(Long submissionId, Collection<Long> oldSectorIds, Collection<Long> newSectorIds) {
+        if (submissionId == null) return;
+        Change change = new Change(submissionId, List.copyOf(oldSectorIds), List.copyOf(newSectorIds));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    /**
+     * Find submissions that selected a sector, optionally including any sector below it.
+     * @param sectorId sector id.
+     * @param includeDescendants whether to include submissions that selected a sub-sector.
+     * @param after last id of the previous page, null for the first page.
+     * @param limit maximum number of ids, clamped between 1 and MAX_PAGE_SIZE.
+     * @return matching submission ids, or empty optional if the sector does not exist.
+     */
+    public Optional<SubmissionIdPageDto> findSubmissions(long sectorId, boolean includeDescendants, Long after, int limit) {
+        SectorCatalog catalog = sectorService.getCatalog();
+        int index = catalog.indexOf(sectorId);
+        if (index == SectorCatalog.NONE) return Optional.empty();
+
+        RoaringBitmap matches;
+        lock.readLock().lock();
+        try {
+            if (!includeDescendants) {
+                RoaringBitmap direct = bySector.get(sectorId);
+                matches = direct == null ? new RoaringBitmap() : direct.clone();
+            } else {
+                List<RoaringBitmap> bitmaps = new ArrayList<>();
+                for (int i = index; i < catalog.subtreeEnd(index); i++) {
+                    RoaringBitmap bitmap = bySector.get(catalog.id(i));
+                    if (bitmap != null) bitmaps.add(bitmap);
+                }
+                matches = FastAggregation.or(bitmaps.iterator());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(page(matches, after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+
+    private static SubmissionIdPageDto page(RoaringBitmap matches, Long after, int limit) {
+        PeekableIntIterator iterator = matches.getIntIterator();
+        if (after != null) {
+            if (after >= MAX_SUBMISSION_ID) return new SubmissionIdPageDto(matches.getLongCardinality(), List.of(), null);
+            if (after >= 0) iterator.advanceIfNeeded((int) (after + 1));
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add(Integer.toUnsignedLong(iterator.next()));
+        }
+        Long nextAfter = iterator.hasNext() ? ids.get(ids.size() - 1) : null;
+        return new SubmissionIdPageDto(matches.getLongCardinality(), ids, nextAfter);
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(bySector);
+            if (pending != null) pending.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean add(Map<Long, RoaringBitmap> index, Long sectorId, long submissionId) {
+        if (submissionId < 0 || submissionId > MAX_SUBMISSION_ID) {
+            LOGGER.warn("Submission id {} is out of range for the sector index; skipping it", submissionId);
+            return false;
+        }
+        index.computeIfAbsent(sectorId, id -> new RoaringBitmap()).add((int) submissionId);
+        return true;
+    }
+
+    /**
+     * One committed change of a submission's sectors. Applying it twice has no further effect,
+     * so replaying changes the initial build already saw is harmless.
+     */
+    private record Change(long submissionId, List<Long> oldSectorIds, List<Long> newSectorIds) {
+        void applyTo(Map<Long, RoaringBitmap> index) {
+            for (Long sectorId : oldSectorIds) {
+                if (newSectorIds.contains(sectorId)) continue;
+                RoaringBitmap bitmap = index.get(sectorId);
+                if (bitmap == null) continue;
+                bitmap.remove((int) submissionId);
+                if (bitmap.isEmpty()) index.remove(sectorId);
+            }
+            for (Long sectorId : newSectorIds) {
+                if (!oldSectorIds.contains(sectorId)) add(index, sectorId, submissionId);
+            }
+        }
+    }
+}
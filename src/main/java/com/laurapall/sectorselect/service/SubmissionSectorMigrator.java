@@ -0,0 +1,132 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.entity.Submission;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts stored selections to the configured sector storage mode after a mode change.
+ * Submissions are rewritten in small transactions through the same code path as an edit, so each one
+ * gets a version increment and a concurrent edit of the same submission is detected, not overwritten.
+ * The selection itself never changes, so the in-memory counters and index are not touched.
+ * To move from table to bitmap: run with dual until the migration has finished, then switch to bitmap.
+ * Switching back to table restores the join rows the same way.
+ * On startup the migration runs on its own thread, so it does not hold up other startup work such as
+ * building the sector index and recounting the sector counters.
+ */
+@Component
+public class SubmissionSectorMigrator implements DisposableBean {
+
+    /**
+     * Number of submissions converted per transaction.
+     */
+    static final int CHUNK_SIZE = 100;
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionSectorMigrator.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final SubmissionSectorStorage sectorStorage;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean stopping;
+
+    /**
+     * Migrator constructor.
+     * @param submissionRepository submission repository.
+     * @param sectorStorage storage that knows the target mode and writes in it.
+     * @param transactionManager transaction manager for the per chunk transactions.
+     */
+    public SubmissionSectorMigrator(SubmissionRepository submissionRepository, SubmissionSectorStorage sectorStorage,
+                                    PlatformTransactionManager transactionManager) {
+        this.submissionRepository = submissionRepository;
+        this.sectorStorage = sectorStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Convert remaining submissions in the background once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStart() {
+        Thread thread = new Thread(() -> {
+            try {
+                migrate();
+            } catch (RuntimeException e) {
+                LOGGER.error("Sector storage migration failed; it continues on the next start", e);
+            }
+        }, "sector-storage-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop after the chunk in progress. The remaining submissions are converted on the next start.
+     */
+    @Override
+    public void destroy() {
+        stopping = true;
+    }
+
+    /**
+     * Convert every submission not yet stored as the configured mode stores it.
+     * @return number of submissions rewritten.
+     */
+    public long migrate() {
+        long started = System.nanoTime();
+        long migrated = 0;
+        long after = 0;
+        long skipped = 0;
+        int attempts = 0;
+        while (!stopping) {
+            List<Long> ids = findPending(after);
+            if (ids.isEmpty()) break;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Submission submission : submissionRepository.findAllById(ids)) {
+                        sectorStorage.convert(submission);
+                    }
+                });
+                migrated += ids.size();
+            } catch (OptimisticLockingFailureException e) {
+                // Edited meanwhile; an edit writes in the current mode, so the chunk shrinks on the next try.
+                if (++attempts < MAX_CHUNK_ATTEMPTS) continue;
+                skipped += ids.size();
+                LOGGER.warn("Skipping submissions with ids {} to {} that kept changing during migration; "
+                        + "they are converted on the next start", ids.get(0), ids.get(ids.size() - 1));
+            }
+            attempts = 0;
+            after = ids.get(ids.size() - 1);
+            if (ids.size() < CHUNK_SIZE) break;
+        }
+        if (migrated > 0) {
+            LOGGER.info("Moved {} submissions to {} sector storage in {} ms", migrated,
+                    sectorStorage.getMode().name().toLowerCase(Locale.ROOT), (System.nanoTime() - started) / 1_000_000);
+        }
+        if (skipped > 0) {
+            LOGGER.warn("{} submissions were skipped and are not yet in {} sector storage", skipped,
+                    sectorStorage.getMode().name().toLowerCase(Locale.ROOT));
+        }
+        return migrated;
+    }
+
+    private List<Long> findPending(long after) {
+        Limit limit = Limit.of(CHUNK_SIZE);
+        return switch (sectorStorage.getMode()) {
+            case TABLE -> submissionRepository.findIdsToMigrateToTable(after, limit);
+            case DUAL -> submissionRepository.findIdsToMigrateToDual(after, limit);
+            case BITMAP -> submissionRepository.findIdsToMigrateToBitmap(after, limit);
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.entity.Submission;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes and reads the selected sectors of a submission in the configured storage mode.
+ * A submission with a sector bitmap is always read from the bitmap, and one without from its
+ * join rows, whatever the current mode. Every mode keeps that rule true when it writes, so the
+ * mode can be changed at any time and SubmissionSectorMigrator converts the remaining rows.
+ */
+@Component
+public class SubmissionSectorStorage {
+
+    /**
+     * Where selected sectors are stored.
+     */
+    public enum Mode {
+        /**
+         * One submission_sectors row per selected sector; no bitmap.
+         */
+        TABLE,
+        /**
+         * Join rows and bitmap, reads use the bitmap. Used while moving between the other two.
+         */
+        DUAL,
+        /**
+         * Bitmap only; join rows are removed.
+         */
+        BITMAP
+    }
+
+    private final Mode mode;
+    private final EntityManager entityManager;
+
+    /**
+     * Storage constructor.
+     * @param mode table, dual or bitmap.
+     * @param entityManager entity manager used to reference sectors.
+     */
+    public SubmissionSectorStorage(@Value("${sectorselect.submission.sector-storage:table}") String mode,
+                                   EntityManager entityManager) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Get configured mode.
+     * @return mode.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the selected sector ids of a submission.
+     * @param submission submission.
+     * @return sector ids, ascending if read from the bitmap.
+     */
+    public List<Long> getSectorIds(Submission submission) {
+        if (submission.getSectorBitmap() != null) return SectorBitmapCodec.decodeIds(submission.getSectorBitmap());
+        return submission.getSectors().stream().map(Sector::getId).toList();
+    }
+
+    /**
+     * Bring the selected sectors of a submission in line with the requested ids.
+     * The join rows are changed in place rather than replaced, so Hibernate only inserts and deletes
+     * the rows that differ instead of rewriting the whole set. New sectors are added as references
+     * without selecting them.
+     * @param submission new or managed submission.
+     * @param ids known sector ids.
+     * @return sector ids selected before the change.
+     */
+    public List<Long> apply(Submission submission, List<Long> ids) {
+        List<Long> previous = getSectorIds(submission);
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (mode != Mode.BITMAP) {
+            applyJoinRows(submission, requested);
+        } else if (submission.getSectorBitmap() == null) {
+            // Join rows were the selection until now. Rows left next to a bitmap are never read,
+            // and convert removes them; skipping them here saves loading the collection on every edit.
+            submission.getSectors().clear();
+        }
+        submission.setSectorBitmap(mode == Mode.TABLE ? null : SectorBitmapCodec.encode(requested));
+        return previous;
+    }
+
+    /**
+     * Rewrite the selection of a submission as the configured mode stores it, without changing it.
+     * Unlike apply, the bitmap mode also drops join rows that were left next to an existing bitmap.
+     * @param submission managed submission.
+     */
+    public void convert(Submission submission) {
+        List<Long> ids = getSectorIds(submission);
+        if (mode == Mode.BITMAP) submission.getSectors().clear();
+        apply(submission, ids);
+    }
+
+    private void applyJoinRows(Submission submission, Set<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Set<Sector> sectors = submission.getSectors();
+        sectors.removeIf(sector -> !requested.contains(sector.getId()));
+        for (Sector sector : sectors) {
+            requested.remove(sector.getId());
+        }
+        for (Long id : requested) {
+            sectors.add(entityManager.getReference(Sector.class, id));
+        }
+    }
+}
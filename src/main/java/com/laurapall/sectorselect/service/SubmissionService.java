@@ -1,18 +1,26 @@
 package com.laurapall.sectorselect.service;
 
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionDto;
+import com.laurapall.sectorselect.dto.SubmissionPageDto;
 import com.laurapall.sectorselect.dto.SubmissionRequest;
 import com.laurapall.sectorselect.dto.SubmissionResponse;
-import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.dto.SubmissionSectorView;
 import com.laurapall.sectorselect.entity.Submission;
-import com.laurapall.sectorselect.repository.SectorRepository;
 import com.laurapall.sectorselect.repository.SubmissionRepository;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -20,19 +28,50 @@ import java.util.Optional;
  */
 @Service
 public class SubmissionService {
+
+    /**
+     * Maximum number of submissions accepted in one batch request.
+     */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * Number of submissions written before the persistence context is flushed and cleared.
+     * Matches hibernate.jdbc.batch_size so each flush goes out as full JDBC batches.
+     */
+    static final int WRITE_BATCH_SIZE = 100;
+
+    /**
+     * Maximum number of submissions returned in one page.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionService.class);
 
     private final SubmissionRepository submissionRepository;
-    private final SectorRepository sectorRepository;
+    private final SectorService sectorService;
+    private final EntityManager entityManager;
+    private final SubmissionSectorStorage sectorStorage;
+    private final SectorPopularityCounters popularityCounters;
+    private final SubmissionSectorIndex sectorIndex;
 
     /**
      * Service constructor.
      * @param submissionRepository submission repository.
-     * @param sectorRepository sector repository.
+     * @param sectorService sector service, its catalog is used to check sector ids.
+     * @param entityManager entity manager used for batch writes.
+     * @param sectorStorage writes selected sectors in the configured storage mode.
+     * @param popularityCounters sector counters to update on every change.
+     * @param sectorIndex sector to submission index to update on every change.
      */
-    public SubmissionService(SubmissionRepository submissionRepository, SectorRepository sectorRepository) {
+    public SubmissionService(SubmissionRepository submissionRepository, SectorService sectorService,
+                             EntityManager entityManager, SubmissionSectorStorage sectorStorage,
+                             SectorPopularityCounters popularityCounters, SubmissionSectorIndex sectorIndex) {
         this.submissionRepository = submissionRepository;
-        this.sectorRepository = sectorRepository;
+        this.sectorService = sectorService;
+        this.entityManager = entityManager;
+        this.sectorStorage = sectorStorage;
+        this.popularityCounters = popularityCounters;
+        this.sectorIndex = sectorIndex;
     }
 
     /**
@@ -42,15 +81,15 @@ public class SubmissionService {
      */
     @Transactional
     public SubmissionResponse createSubmission(SubmissionRequest request) {
-        if (!validateRequest(request)) return invalidResponse();
-
-        List<Long> ids = request.getSectorIds();
-        List<Sector> sectors = sectorRepository.findAllById(ids);
+        List<String> errors = validateRequest(request);
+        List<Long> unknown = findUnknownSectorIds(request, sectorService.getCatalogForWrite(), errors);
+        if (!errors.isEmpty()) return invalidResponse(errors, unknown);
 
         Submission submission = new Submission();
         submission.setName(request.getName().trim());
-        submission.setSectors(new LinkedHashSet<>(sectors));
+        List<Long> previous = sectorStorage.apply(submission, request.getSectorIds());
         submissionRepository.save(submission);
+        recordSectorChange(submission, previous);
 
         LOGGER.info("Successfully created submission with id: {}", submission.getId());
         return toResponse(submission);
@@ -63,44 +102,275 @@ public class SubmissionService {
      */
     @Transactional
     public SubmissionResponse updateCurrentSubmission(SubmissionRequest request) {
+        return updateCurrentSubmission(request, null);
+    }
+
+    /**
+     * Update current submission if request is valid and still at the expected version.
+     * The version is compared with the loaded row, and the UPDATE itself only matches that version,
+     * so a concurrent edit between load and write is caught too. No lock is taken.
+     * @param request submission request.
+     * @param expectedVersion version the client edited, or null to use the version in the request;
+     *                        if both are null the check is skipped.
+     * @return submission response.
+     * @throws ObjectOptimisticLockingFailureException if the submission has a different version.
+     */
+    @Transactional
+    public SubmissionResponse updateCurrentSubmission(SubmissionRequest request, Long expectedVersion) {
         Optional<Submission> submissionOptional = Optional.empty();
         if (request.getEditSubmissionId() != null) {
             submissionOptional = submissionRepository.findById(request.getEditSubmissionId());
         }
-        if (submissionOptional.isEmpty() || !validateRequest(request)) return invalidResponse();
-
-        List<Long> ids = request.getSectorIds();
-        List<Sector> sectors = sectorRepository.findAllById(ids);
+        List<String> errors = validateRequest(request);
+        List<Long> unknown = findUnknownSectorIds(request, sectorService.getCatalogForWrite(), errors);
+        if (submissionOptional.isEmpty()) errors.add("submission not found");
+        if (!errors.isEmpty()) return invalidResponse(errors, unknown);
 
         Submission submission = submissionOptional.get();
+        Long expected = expectedVersion != null ? expectedVersion : request.getVersion();
+        if (expected != null && !expected.equals(submission.getVersion())) {
+            LOGGER.warn("Stale update of submission {}: version {} expected, {} current",
+                    submission.getId(), expected, submission.getVersion());
+            throw new ObjectOptimisticLockingFailureException(Submission.class, submission.getId());
+        }
         submission.setName(request.getName().trim());
-        submission.setSectors(new LinkedHashSet<>(sectors));
-        submissionRepository.save(submission);
+        List<Long> previous = sectorStorage.apply(submission, request.getSectorIds());
+        submissionRepository.saveAndFlush(submission);
+        recordSectorChange(submission, previous);
         LOGGER.info("Successfully updated submission with id: {}", submission.getId());
         return toResponse(submission);
     }
 
+    /**
+     * Get a saved submission.
+     * @param id submission id.
+     * @return submission with its sector ids, or empty optional if it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SubmissionDto> getSubmission(Long id) {
+        List<SubmissionDto> found = toDtos(submissionRepository.findSectorRowsById(id));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Get a page of saved submissions ordered by id.
+     * @param after last id of the previous page, null for the first page.
+     * @param limit maximum number of submissions, clamped between 1 and MAX_PAGE_SIZE.
+     * @return page of submissions and the value to continue after.
+     */
+    @Transactional(readOnly = true)
+    public SubmissionPageDto getSubmissions(Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<SubmissionDto> items = toDtos(submissionRepository.findSectorRowsAfter(after == null ? 0 : after, pageSize));
+        Long nextAfter = items.size() < pageSize ? null : items.get(items.size() - 1).id();
+        return new SubmissionPageDto(items, nextAfter);
+    }
+
+    /**
+     * Check the request fields and its sector ids against the current catalog, without touching the database.
+     * @param request submission request.
+     * @return validation errors, empty if request is valid.
+     */
+    public List<String> validate(SubmissionRequest request) {
+        return validate(request, sectorService.getCatalog());
+    }
+
+    /**
+     * Check the request fields and its sector ids against a catalog, without touching the database.
+     * @param request submission request.
+     * @param catalog sector catalog to check ids against.
+     * @return validation errors, empty if request is valid.
+     */
+    public List<String> validate(SubmissionRequest request, SectorCatalog catalog) {
+        List<String> errors = validateRequest(request);
+        findUnknownSectorIds(request, catalog, errors);
+        return errors;
+    }
+
+    /**
+     * Validate and save many submissions in one transaction.
+     * Every request is validated on its own and invalid ones are skipped. Sector ids are checked
+     * against one catalog version for the whole batch, and valid submissions are written in JDBC batches.
+     * An edit that names the version it started from is rejected if the submission has a different one.
+     * @param requests submission requests, new ones or edits.
+     * @return one result per request, in request order.
+     */
+    @Transactional
+    public SubmissionBatchResponse createSubmissions(List<SubmissionRequest> requests) {
+        SectorCatalog catalog = sectorService.getCatalogForWrite();
+        List<SubmissionResponse> results = new ArrayList<>(requests.size());
+        int accepted = 0;
+
+        for (int start = 0; start < requests.size(); start += WRITE_BATCH_SIZE) {
+            List<SubmissionRequest> chunk = requests.subList(start, Math.min(start + WRITE_BATCH_SIZE, requests.size()));
+            Map<Long, Submission> edited = findEditedSubmissions(chunk);
+            Map<SubmissionResponse, Submission> written = new IdentityHashMap<>();
+            for (SubmissionRequest request : chunk) {
+                SubmissionResponse result = saveBatchItem(request, catalog, edited, written);
+                if (result.isValid()) accepted++;
+                results.add(result);
+            }
+            entityManager.flush();
+            written.forEach((result, submission) -> result.setVersion(submission.getVersion()));
+            entityManager.clear();
+        }
+
+        SubmissionBatchResponse response = new SubmissionBatchResponse();
+        response.setAccepted(accepted);
+        response.setRejected(requests.size() - accepted);
+        response.setResults(results);
+        LOGGER.info("Saved {} of {} submissions in batch", accepted, requests.size());
+        return response;
+    }
+
+    /**
+     * Validate one batch item and write it if valid.
+     * @param request submission request.
+     * @param catalog sector catalog to check ids against.
+     * @param edited submissions of the current chunk that are being edited, by id.
+     * @param written valid results and their submissions, to fill in versions after the flush.
+     * @return result for the item.
+     */
+    private SubmissionResponse saveBatchItem(SubmissionRequest request, SectorCatalog catalog,
+                                             Map<Long, Submission> edited,
+                                             Map<SubmissionResponse, Submission> written) {
+        if (request == null) return invalidResponse(new ArrayList<>(List.of("request is missing")), List.of());
+
+        List<String> errors = validateRequest(request);
+        List<Long> unknown = findUnknownSectorIds(request, catalog, errors);
+        Submission submission = request.getEditSubmissionId() == null
+                ? new Submission()
+                : edited.get(request.getEditSubmissionId());
+        if (submission == null) {
+            errors.add("submission not found");
+        } else if (request.getVersion() != null && submission.getId() != null
+                && !request.getVersion().equals(submission.getVersion())) {
+            LOGGER.warn("Stale batch update of submission {}: version {} expected, {} current",
+                    submission.getId(), request.getVersion(), submission.getVersion());
+            errors.add("submission was changed, current version is " + submission.getVersion());
+        }
+        if (!errors.isEmpty()) return invalidResponse(errors, unknown);
+
+        submission.setName(request.getName().trim());
+        List<Long> previous = sectorStorage.apply(submission, request.getSectorIds());
+        if (submission.getId() == null) entityManager.persist(submission);
+        recordSectorChange(submission, previous);
+        SubmissionResponse response = toResponse(submission);
+        written.put(response, submission);
+        return response;
+    }
+
+    /**
+     * Find requested sector ids that are not in the catalog and add an error for them.
+     * The catalog keeps its ids in an open addressing table, so no database access is needed.
+     * Sectors a running reload is removing count as unknown. When sectors are stored as bitmaps, known ids a bitmap
+     * cannot hold are rejected too.
+     * @param request submission request.
+     * @param catalog sector catalog.
+     * @param errors validation errors to add to.
+     * @return unknown ids, empty if all are known.
+     */
+    private List<Long> findUnknownSectorIds(SubmissionRequest request, SectorCatalog catalog, List<String> errors) {
+        if (request.getSectorIds() == null) return List.of();
+        List<Long> unknown = request.getSectorIds().stream()
+                .filter(id -> id == null || !catalog.contains(id) || sectorService.isRetired(id))
+                .distinct()
+                .toList();
+        if (!unknown.isEmpty()) {
+            errors.add("unknown sector ids: " + unknown);
+            LOGGER.warn("Incorrect submission: unknown sector ids {}", unknown);
+        }
+        if (sectorStorage.getMode() != SubmissionSectorStorage.Mode.TABLE) {
+            List<Long> unstorable = request.getSectorIds().stream()
+                    .filter(id -> id != null && catalog.contains(id) && !SectorBitmapCodec.isEncodable(id))
+                    .distinct()
+                    .toList();
+            if (!unstorable.isEmpty()) {
+                errors.add("sector ids cannot be stored: " + unstorable);
+                LOGGER.warn("Incorrect submission: sector ids {} cannot be stored in a bitmap", unstorable);
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * Pass a saved change of selected sectors on to the in-memory counters and index.
+     * Both apply it once the transaction commits.
+     * @param submission saved submission, with its id assigned.
+     * @param previous sector ids selected before the change.
+     */
+    private void recordSectorChange(Submission submission, List<Long> previous) {
+        List<Long> current = sectorStorage.getSectorIds(submission);
+        popularityCounters.recordChange(previous, current);
+        sectorIndex.recordChange(submission.getId(), previous, current);
+    }
+
+    /**
+     * Load the submissions edited by a chunk of requests in one query.
+     * @param chunk submission requests.
+     * @return submissions by id.
+     */
+    private Map<Long, Submission> findEditedSubmissions(List<SubmissionRequest> chunk) {
+        List<Long> ids = chunk.stream()
+                .filter(Objects::nonNull)
+                .map(SubmissionRequest::getEditSubmissionId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Long, Submission> submissions = new HashMap<>();
+        if (ids.isEmpty()) return submissions;
+        for (Submission submission : submissionRepository.findAllById(ids)) {
+            submissions.put(submission.getId(), submission);
+        }
+        return submissions;
+    }
+
     /**
      * Validate request fields.
      * @param req submission request.
-     * @return true if request is valid, else false.
+     * @return validation errors, empty if request is valid.
      */
-    private boolean validateRequest(SubmissionRequest req) {
-        boolean isValid = true;
+    private List<String> validateRequest(SubmissionRequest req) {
+        List<String> errors = new ArrayList<>();
 
         if (req.getName() == null || req.getName().trim().isEmpty()) {
-            isValid = false;
+            errors.add("name is required");
             LOGGER.warn("Incorrect submission: name is required");
         }
         if (req.getSectorIds() == null || req.getSectorIds().isEmpty()) {
-            isValid = false;
+            errors.add("at least one sector must be selected");
             LOGGER.warn("Incorrect submission: at least one sector must be selected");
         }
         if (!Boolean.TRUE.equals(req.getAgree())) {
-            isValid = false;
+            errors.add("must agree to terms");
             LOGGER.warn("Incorrect submission: must agree to terms");
         }
-        return isValid;
+        return errors;
+    }
+
+    /**
+     * Group joined rows into submissions. Rows of one submission must be next to each other.
+     * A submission stored as a bitmap comes as a single row and its sectors are decoded from it.
+     * @param rows submission and sector rows.
+     * @return submissions in row order.
+     */
+    private List<SubmissionDto> toDtos(List<SubmissionSectorView> rows) {
+        List<SubmissionDto> result = new ArrayList<>();
+        List<Long> sectorIds = null;
+        Long currentId = null;
+        for (SubmissionSectorView row : rows) {
+            if (!row.getId().equals(currentId)) {
+                currentId = row.getId();
+                sectorIds = new ArrayList<>();
+                result.add(new SubmissionDto(row.getId(), row.getName(), row.getVersion(), sectorIds));
+            }
+            if (row.getSectorBitmap() != null) {
+                sectorIds.addAll(SectorBitmapCodec.decodeIds(row.getSectorBitmap()));
+            } else if (row.getSectorId() != null) {
+                sectorIds.add(row.getSectorId());
+            }
+        }
+        return result;
     }
 
     /**
@@ -113,18 +383,22 @@ public class SubmissionService {
         response.setValid(true);
         response.setId(submission.getId());
         response.setName(submission.getName());
-        response.setSectorIds(submission.getSectors().stream().map(Sector::getId).toList());
+        response.setSectorIds(sectorStorage.getSectorIds(submission));
+        response.setVersion(submission.getVersion());
         return response;
     }
 
     /**
      * Create a response for invalid submission.
+     * @param errors validation errors.
+     * @param unknownSectorIds requested sector ids that do not exist.
      * @return response.
      */
-    private SubmissionResponse invalidResponse() {
+    private SubmissionResponse invalidResponse(List<String> errors, List<Long> unknownSectorIds) {
         SubmissionResponse response = new SubmissionResponse();
         response.setValid(false);
+        response.setErrors(errors);
+        response.setUnknownSectorIds(unknownSectorIds);
         return response;
     }
 }
-
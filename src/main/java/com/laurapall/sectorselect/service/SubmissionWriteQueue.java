@@ -0,0 +1,259 @@
+package com.laurapall.sectorselect.service;
+
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.dto.SubmissionTicketResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind queue for submissions. Requests are accepted into a bounded queue and a single
+ * background writer saves them in groups, one transaction per group, through the batch path of
+ * SubmissionService. A group that fails is retried one submission per transaction. Outcomes are kept
+ * per ticket for a while so clients can poll for them.
+ * On shutdown the queue stops accepting and the writer drains everything already accepted.
+ */
+@Component
+public class SubmissionWriteQueue implements SmartLifecycle {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionWriteQueue.class);
+    private static final long POLL_MILLIS = 200;
+    private static final long EVICT_INTERVAL_MILLIS = 1000;
+
+    private final SubmissionService submissionService;
+    private final BlockingQueue<Pending> queue;
+    private final int groupSize;
+    private final long retentionMillis;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+    private volatile Thread writer;
+    private long lastEviction;
+
+    /**
+     * Queue constructor.
+     * @param submissionService service used to save groups of submissions.
+     * @param capacity maximum number of waiting submissions.
+     * @param groupSize maximum number of submissions saved in one transaction.
+     * @param retentionSeconds how long finished tickets can still be polled.
+     */
+    public SubmissionWriteQueue(SubmissionService submissionService,
+                                @Value("${sectorselect.submission.queue-capacity:10000}") int capacity,
+                                @Value("${sectorselect.submission.queue-group-size:100}") int groupSize,
+                                @Value("${sectorselect.submission.ticket-retention-seconds:600}") long retentionSeconds) {
+        this.submissionService = submissionService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.groupSize = groupSize;
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+    }
+
+    /**
+     * Add a request to the queue without waiting.
+     * @param request validated submission request.
+     * @return ticket id, or empty optional if the queue is full or shutting down.
+     */
+    public Optional<String> enqueue(SubmissionRequest request) {
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting) return Optional.empty();
+            Ticket ticket = new Ticket(UUID.randomUUID().toString());
+            tickets.put(ticket.id, ticket);
+            if (!queue.offer(new Pending(ticket, request))) {
+                tickets.remove(ticket.id);
+                return Optional.empty();
+            }
+            return Optional.of(ticket.id);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the state of a queued submission.
+     * @param ticketId ticket id returned by enqueue.
+     * @return ticket state, or empty optional if ticket is unknown or expired.
+     */
+    public Optional<SubmissionTicketResponse> status(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        return ticket == null ? Optional.empty() : Optional.of(ticket.toResponse());
+    }
+
+    /**
+     * Number of submissions waiting to be written.
+     * @return queue length.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        Thread thread = new Thread(this::drain, "submission-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        Thread thread = writer;
+        if (thread == null) return;
+        LOGGER.info("Draining {} queued submission(s) before shutdown", queue.size());
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while draining submissions, {} left unsaved", queue.size());
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    /**
+     * Start before and stop after the web server, so no accepted request is left in the queue.
+     * @return lifecycle phase.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Writer loop. Runs until the queue has stopped accepting and is empty.
+     */
+    private void drain() {
+        List<Pending> group = new ArrayList<>(groupSize);
+        while (true) {
+            Pending first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = queue.poll();
+            }
+            if (first == null) {
+                if (!accepting && queue.isEmpty()) return;
+            } else {
+                group.add(first);
+                queue.drainTo(group, groupSize - 1);
+                write(group);
+                group.clear();
+            }
+            evictExpired();
+        }
+    }
+
+    /**
+     * Save one group in one transaction and record the outcome of every ticket.
+     * If the group fails, every submission in it is saved again in its own transaction,
+     * so one bad submission does not fail the others.
+     * @param group queued submissions.
+     */
+    private void write(List<Pending> group) {
+        List<SubmissionRequest> requests = group.stream().map(Pending::request).toList();
+        try {
+            SubmissionBatchResponse response = submissionService.createSubmissions(requests);
+            for (int i = 0; i < group.size(); i++) {
+                finish(group.get(i), response.getResults().get(i));
+            }
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                LOGGER.error("Failed to save queued submission {}", group.get(0).ticket().id, e);
+                group.get(0).ticket().finish(null, "submission could not be saved");
+                return;
+            }
+            LOGGER.warn("Failed to save {} queued submission(s) together, saving them one by one", group.size(), e);
+            for (Pending pending : group) {
+                write(List.of(pending));
+            }
+        }
+    }
+
+    /**
+     * Record the outcome of a submission. Submissions the service rejected are failed with its errors.
+     * @param pending queued submission.
+     * @param result result from the service.
+     */
+    private static void finish(Pending pending, SubmissionResponse result) {
+        if (result.isValid()) {
+            pending.ticket().finish(result, null);
+        } else {
+            List<String> errors = result.getErrors();
+            pending.ticket().finish(result, errors == null || errors.isEmpty()
+                    ? "submission is invalid" : String.join("; ", errors));
+        }
+    }
+
+    /**
+     * Forget finished tickets older than the retention time. Runs on the writer thread at most once a second.
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < EVICT_INTERVAL_MILLIS) return;
+        lastEviction = now;
+        long cutoff = now - retentionMillis;
+        tickets.values().removeIf(ticket -> ticket.finishedAt != 0 && ticket.finishedAt < cutoff);
+    }
+
+    private record Pending(Ticket ticket, SubmissionRequest request) {
+    }
+
+    /**
+     * Outcome of one queued submission, written by the writer and read by status requests.
+     */
+    private static final class Ticket {
+        private final String id;
+        private volatile SubmissionResponse result;
+        private volatile String error;
+        private volatile long finishedAt;
+
+        Ticket(String id) {
+            this.id = id;
+        }
+
+        void finish(SubmissionResponse result, String error) {
+            this.result = result;
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+        }
+
+        SubmissionTicketResponse toResponse() {
+            SubmissionTicketResponse response = new SubmissionTicketResponse();
+            response.setTicket(id);
+            if (finishedAt == 0) {
+                response.setState(SubmissionTicketResponse.State.QUEUED);
+            } else {
+                response.setState(error == null ? SubmissionTicketResponse.State.DONE
+                        : SubmissionTicketResponse.State.FAILED);
+                response.setResult(result);
+                response.setError(error);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.controller.SectorAdminController;
+import com.laurapall.sectorselect.dto.SectorReloadResponse;
+import com.laurapall.sectorselect.service.SectorCatalogReloader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SectorAdminControllerTests {
+
+    @Mock
+    private SectorCatalogReloader reloader;
+
+    @InjectMocks
+    private SectorAdminController controller;
+
+    @Test
+    void testReloadReturnsSummary() throws IOException {
+        SectorReloadResponse expected = new SectorReloadResponse();
+        expected.setAdded(2);
+        when(reloader.reload()).thenReturn(expected);
+
+        ResponseEntity<SectorReloadResponse> response = controller.reload();
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertSame(expected, response.getBody());
+    }
+
+    @Test
+    void testReloadReturnsConflictWhenRejected() throws IOException {
+        when(reloader.reload()).thenThrow(new IllegalStateException("Cannot remove"));
+
+        ResponseEntity<SectorReloadResponse> response = controller.reload();
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+}
@@ -0,0 +1,73 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.service.SectorBitmapCodec;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+
+class SectorBitmapCodecTests {
+
+	private final SectorCatalog catalog = new SectorCatalog.Builder()
+			.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+			.add(6L, 1L, "Food and Beverage")
+			.add(342L, 6L, "Bakery & confectionery products")
+			.add(19L, 1L, "Construction materials")
+			.add(2L, SectorCatalog.NO_PARENT, "Service")
+			.build();
+
+	@Test
+	void testEncodedIdsDecodeInAscendingOrder() {
+		byte[] encoded = SectorBitmapCodec.encode(List.of(342L, 1L, 19L, 1L));
+
+		Assertions.assertEquals(List.of(1L, 19L, 342L), SectorBitmapCodec.decodeIds(encoded));
+	}
+
+	@Test
+	void testSmallSelectionIsCompact() {
+		byte[] encoded = SectorBitmapCodec.encode(List.of(1L, 6L, 342L));
+
+		Assertions.assertTrue(encoded.length <= 24, "Three sectors took " + encoded.length + " bytes");
+	}
+
+	@Test
+	void testLargeIdsRoundTripAsUnsigned() {
+		List<Long> ids = List.of(0L, 3_000_000_000L, SectorBitmapCodec.MAX_SECTOR_ID);
+
+		Assertions.assertEquals(ids, SectorBitmapCodec.decodeIds(SectorBitmapCodec.encode(ids)));
+	}
+
+	@Test
+	void testOutOfRangeIdIsRejected() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> SectorBitmapCodec.encode(List.of(SectorBitmapCodec.MAX_SECTOR_ID + 1)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SectorBitmapCodec.encode(List.of(-1L)));
+	}
+
+	@Test
+	void testCorruptBytesAreReported() {
+		Assertions.assertThrows(IllegalStateException.class, () -> SectorBitmapCodec.decode(new byte[] {1, 2, 3}));
+	}
+
+	@Test
+	void testAnyOfAndAllOf() {
+		RoaringBitmap selection = SectorBitmapCodec.toBitmap(List.of(6L, 19L));
+
+		Assertions.assertTrue(SectorBitmapCodec.anyOf(selection, SectorBitmapCodec.toBitmap(List.of(2L, 19L))));
+		Assertions.assertFalse(SectorBitmapCodec.anyOf(selection, SectorBitmapCodec.toBitmap(List.of(2L, 342L))));
+		Assertions.assertTrue(SectorBitmapCodec.allOf(selection, SectorBitmapCodec.toBitmap(List.of(6L, 19L))));
+		Assertions.assertFalse(SectorBitmapCodec.allOf(selection, SectorBitmapCodec.toBitmap(List.of(6L, 342L))));
+	}
+
+	@Test
+	void testSubtreeContainsSectorAndDescendants() {
+		Assertions.assertEquals(List.of(6L, 342L), SectorBitmapCodec.toIds(SectorBitmapCodec.subtree(catalog, 6L)));
+		Assertions.assertEquals(List.of(1L, 6L, 19L, 342L),
+				SectorBitmapCodec.toIds(SectorBitmapCodec.subtree(catalog, 1L)));
+		Assertions.assertTrue(SectorBitmapCodec.subtree(catalog, 99L).isEmpty());
+		Assertions.assertTrue(SectorBitmapCodec.anyOf(SectorBitmapCodec.toBitmap(List.of(342L)),
+				SectorBitmapCodec.subtree(catalog, 1L)));
+	}
+}
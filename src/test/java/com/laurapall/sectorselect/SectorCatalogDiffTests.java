@@ -0,0 +1,118 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorLayoutRow;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogDiff;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SectorCatalogDiffTests {
+
+	private final SectorCatalog current = new SectorCatalog.Builder()
+			.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+			.add(6L, 1L, "Food and Beverage")
+			.add(342L, 6L, "Bakery & confectionery products")
+			.add(2L, SectorCatalog.NO_PARENT, "Service")
+			.build();
+
+	@Test
+	void testSameCatalogHasNoChanges() {
+		SectorCatalogDiff diff = SectorCatalogDiff.between(stored(current), current);
+
+		Assertions.assertTrue(diff.isEmpty());
+	}
+
+	@Test
+	void testDiffFindsAddedRenamedMovedAndRemoved() {
+		SectorCatalog next = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food & Beverage")
+				.add(43L, 6L, "Beverages")
+				.add(5L, SectorCatalog.NO_PARENT, "Other")
+				.add(342L, 5L, "Bakery & confectionery products")
+				.build();
+
+		SectorCatalogDiff diff = SectorCatalogDiff.between(stored(current), next);
+
+		Assertions.assertEquals(List.of(43L, 5L), diff.getAdded().stream().map(next::id).toList());
+		Assertions.assertEquals(1, diff.getRenamed());
+		Assertions.assertEquals(1, diff.getMoved());
+		Assertions.assertEquals(List.of(2L), diff.getRemoved());
+		Assertions.assertTrue(diff.getChanged().stream().map(next::id).toList().containsAll(List.of(6L, 342L)));
+	}
+
+	@Test
+	void testDiffCountsShiftedBoundsAsRelaid() {
+		SectorCatalog next = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(5L, 1L, "Printing")
+				.add(6L, 1L, "Food and Beverage")
+				.add(342L, 6L, "Bakery & confectionery products")
+				.add(2L, SectorCatalog.NO_PARENT, "Service")
+				.build();
+
+		SectorCatalogDiff diff = SectorCatalogDiff.between(stored(current), next);
+
+		Assertions.assertEquals(1, diff.getAdded().size());
+		Assertions.assertEquals(0, diff.getRenamed());
+		Assertions.assertEquals(0, diff.getMoved());
+		Assertions.assertEquals(4, diff.getRelaid());
+		Assertions.assertTrue(diff.getChanged().isEmpty());
+		Assertions.assertEquals(List.of(new SectorCatalogDiff.Shift(2, 7, 2)), diff.getLftShifts());
+		Assertions.assertEquals(List.of(new SectorCatalogDiff.Shift(4, 8, 2)), diff.getRgtShifts());
+	}
+
+	@Test
+	void testMovedSubtreeIsOnePathMove() {
+		SectorCatalog next = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(2L, SectorCatalog.NO_PARENT, "Service")
+				.add(6L, 2L, "Food and Beverage")
+				.add(342L, 6L, "Bakery & confectionery products")
+				.build();
+
+		SectorCatalogDiff diff = SectorCatalogDiff.between(stored(current), next);
+
+		Assertions.assertEquals(List.of(6L), diff.getChanged().stream().map(next::id).toList());
+		Assertions.assertEquals(List.of(new SectorCatalogDiff.PathMove("/1/6/", "/2/6/", 0)), diff.getPathMoves());
+		Assertions.assertEquals(1, diff.getMoved());
+		Assertions.assertEquals(3, diff.getRelaid());
+	}
+
+	@Test
+	void testRowsWithoutStoredBoundsAreWrittenOneByOne() {
+		List<SectorLayoutRow> rows = new ArrayList<>(stored(current));
+		rows.set(2, new SectorLayoutRow(342L, "Bakery & confectionery products", 2, 6L, "/1/6/342/", null, null));
+
+		SectorCatalogDiff diff = SectorCatalogDiff.between(rows, current);
+
+		Assertions.assertEquals(List.of(342L), diff.getChanged().stream().map(current::id).toList());
+		Assertions.assertTrue(diff.getLftShifts().isEmpty());
+	}
+
+	@Test
+	void testRemovedSectorsAreOrderedDeepestFirst() {
+		SectorCatalog next = new SectorCatalog.Builder()
+				.add(2L, SectorCatalog.NO_PARENT, "Service")
+				.build();
+
+		SectorCatalogDiff diff = SectorCatalogDiff.between(stored(current), next);
+
+		Assertions.assertEquals(List.of(342L, 6L, 1L), diff.getRemoved());
+		Assertions.assertEquals(2, diff.getRemovedLevel(0));
+	}
+
+	private List<SectorLayoutRow> stored(SectorCatalog catalog) {
+		List<SectorLayoutRow> rows = new ArrayList<>();
+		for (int i = 0; i < catalog.size(); i++) {
+			int parent = catalog.parent(i);
+			rows.add(new SectorLayoutRow(catalog.id(i), catalog.name(i), catalog.level(i),
+					parent == SectorCatalog.NONE ? null : catalog.id(parent), catalog.path(i), catalog.lft(i),
+					catalog.rgt(i)));
+		}
+		return rows;
+	}
+}
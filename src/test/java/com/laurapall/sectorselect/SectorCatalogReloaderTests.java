@@ -0,0 +1,165 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorLayoutRow;
+import com.laurapall.sectorselect.dto.SectorReloadResponse;
+import com.laurapall.sectorselect.dto.SubmissionSectorBitmap;
+import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.repository.SectorRepository;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorBitmapCodec;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogReloader;
+import com.laurapall.sectorselect.service.SectorDataLoader;
+import com.laurapall.sectorselect.service.SectorService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SectorCatalogReloaderTests {
+
+	@Mock
+	private SectorDataLoader dataLoader;
+
+	@Mock
+	private SectorRepository sectorRepository;
+
+	@Mock
+	private SubmissionRepository submissionRepository;
+
+	@Mock
+	private EntityManager entityManager;
+
+	@Mock
+	private SectorService sectorService;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@InjectMocks
+	private SectorCatalogReloader reloader;
+
+	@Test
+	void testReloadWithoutChangesWritesNothing() throws IOException {
+		when(dataLoader.readCatalog()).thenReturn(catalog("Food and Beverage"));
+		when(sectorRepository.findAllLayoutRows()).thenReturn(storedRows());
+
+		SectorReloadResponse response = reloader.reload();
+
+		Assertions.assertEquals(0, response.getAdded() + response.getRenamed() + response.getRemoved());
+		verify(entityManager, never()).persist(any());
+		verify(sectorService, never()).publishCatalog(any());
+	}
+
+	@Test
+	void testReloadAppliesDiffAndPublishes() throws IOException {
+		SectorCatalog next = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food & Beverage")
+				.add(43L, 6L, "Beverages")
+				.build();
+		Sector food = new Sector();
+		food.setId(6L);
+		when(dataLoader.readCatalog()).thenReturn(next);
+		when(sectorRepository.findAllLayoutRows()).thenReturn(storedRows());
+		when(sectorRepository.findAllById(List.of(6L))).thenReturn(List.of(food));
+		when(submissionRepository.findReferencedSectorIds(List.of(342L))).thenReturn(List.of());
+		Query query = mock(Query.class, RETURNS_SELF);
+		when(entityManager.createQuery(anyString())).thenReturn(query);
+
+		SectorReloadResponse response = reloader.reload();
+
+		ArgumentCaptor<Sector> captor = ArgumentCaptor.forClass(Sector.class);
+		verify(entityManager, times(1)).persist(captor.capture());
+		Assertions.assertEquals(43L, captor.getValue().getId());
+		Assertions.assertEquals("/1/6/43/", captor.getValue().getPath());
+		Assertions.assertEquals(-3, captor.getValue().getLft());
+		verify(query, times(1)).executeUpdate();
+		Assertions.assertEquals("Food & Beverage", food.getName());
+		verify(sectorRepository, times(1)).deleteAllByIdInBatch(List.of(342L));
+		InOrder order = inOrder(sectorService, submissionRepository, sectorRepository);
+		order.verify(sectorService).retireSectors(List.of(342L));
+		order.verify(submissionRepository).findReferencedSectorIds(List.of(342L));
+		order.verify(sectorRepository).deleteAllByIdInBatch(List.of(342L));
+		order.verify(sectorService).publishCatalog(next);
+		order.verify(sectorService).retireSectors(List.of());
+		Assertions.assertEquals(1, response.getAdded());
+		Assertions.assertEquals(1, response.getRenamed());
+		Assertions.assertEquals(1, response.getRemoved());
+	}
+
+	@Test
+	void testReloadRefusesToRemoveSelectedSectors() throws IOException {
+		when(dataLoader.readCatalog()).thenReturn(new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food and Beverage")
+				.build());
+		when(sectorRepository.findAllLayoutRows()).thenReturn(storedRows());
+		when(submissionRepository.findReferencedSectorIds(anyList())).thenReturn(List.of(342L));
+
+		Assertions.assertThrows(IllegalStateException.class, () -> reloader.reload());
+		verify(sectorRepository, never()).deleteAllByIdInBatch(any());
+		verify(sectorService, never()).publishCatalog(any());
+		verify(sectorService, times(1)).retireSectors(List.of());
+		verify(transactionManager, times(1)).rollback(any());
+	}
+
+	@Test
+	void testReloadRefusesToRemoveSectorsSelectedInBitmaps() throws IOException {
+		when(dataLoader.readCatalog()).thenReturn(new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food and Beverage")
+				.build());
+		when(sectorRepository.findAllLayoutRows()).thenReturn(storedRows());
+		when(submissionRepository.findReferencedSectorIds(anyList())).thenReturn(List.of());
+		doAnswer(invocation -> {
+			Consumer<SubmissionSectorBitmap> action = invocation.getArgument(0);
+			action.accept(new SubmissionSectorBitmap(1L, SectorBitmapCodec.encode(List.of(6L))));
+			action.accept(new SubmissionSectorBitmap(2L, SectorBitmapCodec.encode(List.of(1L, 342L))));
+			return null;
+		}).when(submissionRepository).forEachSectorBitmap(any());
+
+		IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> reloader.reload());
+		Assertions.assertTrue(e.getMessage().contains("e.g. 342"), e.getMessage());
+		verify(sectorRepository, never()).deleteAllByIdInBatch(any());
+	}
+
+	private SectorCatalog catalog(String foodName) {
+		return new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, foodName)
+				.add(342L, 6L, "Bakery & confectionery products")
+				.build();
+	}
+
+	private List<SectorLayoutRow> storedRows() {
+		return List.of(
+				new SectorLayoutRow(1L, "Manufacturing", 0, null, "/1/", 1, 6),
+				new SectorLayoutRow(6L, "Food and Beverage", 1, 1L, "/1/6/", 2, 5),
+				new SectorLayoutRow(342L, "Bakery & confectionery products", 2, 6L, "/1/6/342/", 3, 4));
+	}
+}
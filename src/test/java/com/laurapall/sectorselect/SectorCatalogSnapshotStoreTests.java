@@ -0,0 +1,107 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogSnapshotStore;
+import com.laurapall.sectorselect.service.SectorCatalogValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+class SectorCatalogSnapshotStoreTests {
+
+	private static final SectorCatalogValidator.Policy FAIL_FAST = SectorCatalogValidator.Policy.FAIL_FAST;
+
+	@TempDir
+	Path directory;
+
+	private SectorCatalog catalog;
+
+	@BeforeEach
+	void setUp() {
+		catalog = new SectorCatalog.Builder()
+				.add(342L, 6L, "Bakery & confectionery products")
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food and Beverage")
+				.add(444L, 2L, "Ülemiste")
+				.build();
+	}
+
+	@Test
+	void testSnapshotRoundTrip() {
+		SectorCatalogSnapshotStore store = store();
+		store.save(catalog, 42L, FAIL_FAST, 32);
+
+		SectorCatalog restored = store.load(42L, FAIL_FAST, 32).orElseThrow();
+		Assertions.assertEquals(catalog.size(), restored.size());
+		for (int i = 0; i < catalog.size(); i++) {
+			Assertions.assertEquals(catalog.id(i), restored.id(i));
+			Assertions.assertEquals(catalog.name(i), restored.name(i));
+			Assertions.assertEquals(catalog.level(i), restored.level(i));
+			Assertions.assertEquals(catalog.parent(i), restored.parent(i));
+			Assertions.assertEquals(catalog.subtreeEnd(i), restored.subtreeEnd(i));
+		}
+		Assertions.assertEquals(catalog.getOrphanCount(), restored.getOrphanCount());
+		Assertions.assertEquals(2, restored.indexOf(342L));
+	}
+
+	@Test
+	void testStaleSnapshotIsIgnored() {
+		SectorCatalogSnapshotStore store = store();
+		store.save(catalog, 42L, FAIL_FAST, 32);
+
+		Assertions.assertTrue(store.load(43L, FAIL_FAST, 32).isEmpty());
+	}
+
+	@Test
+	void testSnapshotValidatedWithOtherSettingsIsIgnored() {
+		SectorCatalogSnapshotStore store = store();
+		store.save(catalog, 42L, SectorCatalogValidator.Policy.QUARANTINE, 32);
+
+		Assertions.assertTrue(store.load(42L, FAIL_FAST, 32).isEmpty());
+		Assertions.assertTrue(store.load(42L, SectorCatalogValidator.Policy.QUARANTINE, 8).isEmpty());
+		Assertions.assertTrue(store.load(42L, SectorCatalogValidator.Policy.QUARANTINE, 32).isPresent());
+	}
+
+	@Test
+	void testDamagedSnapshotIsIgnored() throws IOException {
+		SectorCatalogSnapshotStore store = store();
+		store.save(catalog, 42L, FAIL_FAST, 32);
+		Path file = directory.resolve("sectors.bin");
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[bytes.length - 1] ^= 0x7f;
+		Files.write(file, bytes);
+
+		Assertions.assertTrue(store.load(42L, FAIL_FAST, 32).isEmpty());
+	}
+
+	@Test
+	void testDisabledStoreWritesNothing() {
+		SectorCatalogSnapshotStore store = new SectorCatalogSnapshotStore(" ");
+		store.save(catalog, 42L, FAIL_FAST, 32);
+
+		Assertions.assertFalse(store.isEnabled());
+		Assertions.assertEquals(Optional.empty(), store.load(42L, FAIL_FAST, 32));
+	}
+
+	@Test
+	void testChecksumDependsOnContent() throws IOException {
+		long first = SectorCatalogSnapshotStore.checksum(
+				new ByteArrayInputStream("[{\"id\":1}]".getBytes(StandardCharsets.UTF_8)));
+		long second = SectorCatalogSnapshotStore.checksum(
+				new ByteArrayInputStream("[{\"id\":2}]".getBytes(StandardCharsets.UTF_8)));
+
+		Assertions.assertNotEquals(first, second);
+	}
+
+	private SectorCatalogSnapshotStore store() {
+		return new SectorCatalogSnapshotStore(directory.resolve("sectors.bin").toString());
+	}
+}
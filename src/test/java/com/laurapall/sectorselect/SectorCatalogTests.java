@@ -0,0 +1,92 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorRow;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class SectorCatalogTests {
+
+	private SectorCatalog catalog;
+
+	@BeforeEach
+	void setUp() {
+		catalog = new SectorCatalog.Builder()
+				.add(342L, 6L, "Bakery & confectionery products")
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food and Beverage")
+				.add(43L, 6L, "Beverages")
+				.add(5L, 1L, "Printing")
+				.add(2L, SectorCatalog.NO_PARENT, "Service")
+				.build();
+	}
+
+	@Test
+	void testCatalogIsLaidOutInPreOrder() {
+		Assertions.assertEquals(6, catalog.size());
+		Assertions.assertEquals(1L, catalog.id(0));
+		Assertions.assertEquals(6L, catalog.id(1));
+		Assertions.assertEquals(342L, catalog.id(2));
+		Assertions.assertEquals(43L, catalog.id(3));
+		Assertions.assertEquals(5L, catalog.id(4));
+		Assertions.assertEquals(2L, catalog.id(5));
+	}
+
+	@Test
+	void testCatalogComputesLevelsAndLinks() {
+		int food = catalog.indexOf(6L);
+		Assertions.assertEquals(1, catalog.level(food));
+		Assertions.assertEquals(2, catalog.level(catalog.indexOf(342L)));
+		Assertions.assertEquals(catalog.indexOf(1L), catalog.parent(food));
+		Assertions.assertEquals(catalog.indexOf(342L), catalog.firstChild(food));
+		Assertions.assertEquals(catalog.indexOf(5L), catalog.nextSibling(food));
+		Assertions.assertEquals(catalog.indexOf(2L), catalog.nextSibling(catalog.firstRoot()));
+		Assertions.assertEquals(2, catalog.childCount(food));
+		Assertions.assertEquals(2, catalog.rootCount());
+		Assertions.assertEquals("Food and Beverage", catalog.name(food));
+	}
+
+	@Test
+	void testIsInSubtree() {
+		Assertions.assertTrue(catalog.isInSubtree(catalog.indexOf(342L), catalog.indexOf(1L)));
+		Assertions.assertTrue(catalog.isInSubtree(catalog.indexOf(6L), catalog.indexOf(6L)));
+		Assertions.assertFalse(catalog.isInSubtree(catalog.indexOf(5L), catalog.indexOf(6L)));
+		Assertions.assertFalse(catalog.isInSubtree(catalog.indexOf(2L), catalog.indexOf(1L)));
+	}
+
+	@Test
+	void testDescendantsAndAncestors() {
+		List<Long> descendants = catalog.descendants(catalog.indexOf(1L)).stream().map(SectorRow::id).toList();
+		Assertions.assertEquals(List.of(6L, 342L, 43L, 5L), descendants);
+
+		List<SectorRow> ancestors = catalog.ancestors(catalog.indexOf(43L));
+		Assertions.assertEquals(List.of(1L, 6L), ancestors.stream().map(SectorRow::id).toList());
+	}
+
+	@Test
+	void testUnknownIdIsNotFound() {
+		Assertions.assertEquals(SectorCatalog.NONE, catalog.indexOf(99L));
+		Assertions.assertFalse(catalog.contains(99L));
+	}
+
+	@Test
+	void testOrphansBecomeRootsAndDuplicatesAndCyclesAreDropped() {
+		SectorCatalog broken = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Root")
+				.add(1L, SectorCatalog.NO_PARENT, "Duplicate")
+				.add(444L, 2L, "Orphan")
+				.add(7L, 8L, "Cycle A")
+				.add(8L, 7L, "Cycle B")
+				.build();
+
+		Assertions.assertEquals(2, broken.size());
+		Assertions.assertEquals("Root", broken.name(broken.indexOf(1L)));
+		Assertions.assertEquals(0, broken.level(broken.indexOf(444L)));
+		Assertions.assertEquals(1, broken.getOrphanCount());
+		Assertions.assertEquals(3, broken.getDroppedCount());
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorCatalogIssue;
+import com.laurapall.sectorselect.dto.SectorCatalogValidationReport;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class SectorCatalogValidatorTests {
+
+	private final SectorCatalogValidator validator = new SectorCatalogValidator("fail-fast", 32);
+
+	@Test
+	void testValidCatalogHasNoIssues() {
+		SectorCatalogValidationReport report = validator.validate(new SectorCatalog.Builder()
+				.add(6L, 1L, "Food and Beverage")
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(342L, 6L, "Bakery & confectionery products"));
+
+		Assertions.assertFalse(report.hasErrors());
+		Assertions.assertTrue(report.getIssues().isEmpty());
+		Assertions.assertEquals(3, report.getSectorCount());
+		Assertions.assertEquals(2, report.getMaxDepth());
+	}
+
+	@Test
+	void testValidatorReportsLaterDuplicate() {
+		SectorCatalogValidationReport report = validator.validate(new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing again"));
+
+		Assertions.assertTrue(report.hasErrors());
+		Assertions.assertEquals(1, report.count(SectorCatalogIssue.Type.DUPLICATE_ID));
+		Assertions.assertEquals(1L, report.getIssues().get(0).sectorId());
+	}
+
+	@Test
+	void testValidatorReportsOrphanAsWarning() {
+		SectorCatalogValidationReport report = validator.validate(new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(444L, 2L, "Orphan"));
+
+		Assertions.assertFalse(report.hasErrors());
+		Assertions.assertEquals(1, report.count(SectorCatalogIssue.Type.ORPHAN));
+		SectorCatalogIssue issue = report.getIssues().get(0);
+		Assertions.assertEquals(444L, issue.sectorId());
+		Assertions.assertEquals(2L, issue.parentId());
+	}
+
+	@Test
+	void testValidatorReportsCycleAndSectorsBelowIt() {
+		SectorCatalogValidationReport report = validator.validate(new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(10L, 12L, "A")
+				.add(11L, 10L, "B")
+				.add(12L, 11L, "C")
+				.add(13L, 12L, "Below cycle")
+				.add(20L, 20L, "Own parent"));
+
+		Assertions.assertTrue(report.hasErrors());
+		Assertions.assertEquals(Set.of(10L, 11L, 12L, 20L), idsOf(report, SectorCatalogIssue.Type.CYCLE));
+		Assertions.assertEquals(Set.of(13L), idsOf(report, SectorCatalogIssue.Type.UNDER_CYCLE));
+	}
+
+	@Test
+	void testValidatorReportsDepthOutliers() {
+		SectorCatalog.Builder builder = new SectorCatalog.Builder().add(0L, SectorCatalog.NO_PARENT, "Root");
+		for (long id = 1; id <= 40; id++) {
+			builder.add(id, id - 1, "Level " + id);
+		}
+
+		SectorCatalogValidationReport report = validator.validate(builder);
+
+		Assertions.assertFalse(report.hasErrors());
+		Assertions.assertEquals(40, report.getMaxDepth());
+		Assertions.assertEquals(8, report.count(SectorCatalogIssue.Type.DEPTH_OUTLIER));
+	}
+
+	@Test
+	void testValidatorCountsBeyondSample() {
+		SectorCatalog.Builder builder = new SectorCatalog.Builder();
+		for (long id = 1; id <= 10_000; id++) {
+			builder.add(id, -id, "Orphan " + id);
+		}
+
+		SectorCatalogValidationReport report = validator.validate(builder);
+
+		Assertions.assertEquals(10_000, report.count(SectorCatalogIssue.Type.ORPHAN));
+		Assertions.assertEquals(100, report.getIssues().size());
+	}
+
+	@Test
+	void testValidatorParsesPolicy() {
+		Assertions.assertEquals(SectorCatalogValidator.Policy.FAIL_FAST, validator.getPolicy());
+		Assertions.assertEquals(SectorCatalogValidator.Policy.QUARANTINE,
+				new SectorCatalogValidator("quarantine", 32).getPolicy());
+	}
+
+	private Set<Long> idsOf(SectorCatalogValidationReport report, SectorCatalogIssue.Type type) {
+		return report.getIssues().stream()
+				.filter(issue -> issue.type() == type)
+				.map(SectorCatalogIssue::sectorId)
+				.collect(Collectors.toSet());
+	}
+}
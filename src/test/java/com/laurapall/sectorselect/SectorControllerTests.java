@@ -3,7 +3,9 @@ package com.laurapall.sectorselect;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.laurapall.sectorselect.controller.SectorController;
 
+import com.laurapall.sectorselect.dto.SectorNodeDto;
 import com.laurapall.sectorselect.dto.SectorTreeDto;
+import com.laurapall.sectorselect.service.SectorPopularityCounters;
 import com.laurapall.sectorselect.service.SectorService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -11,9 +13,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -24,6 +34,9 @@ class SectorControllerTests {
     @Mock
     private SectorService service;
 
+    @Mock
+    private SectorPopularityCounters popularityCounters;
+
     @InjectMocks
     private SectorController controller;
 
@@ -103,4 +116,38 @@ class SectorControllerTests {
         Assertions.assertEquals(mapper.readTree(expectedJson), mapper.readTree(resultJson));
     }
 
+    @Test
+    void testStreamSectorTreeWritesThroughService() throws Exception {
+        ResponseEntity<StreamingResponseBody> result = controller.streamSectorTree();
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertEquals(MediaType.APPLICATION_JSON, result.getHeaders().getContentType());
+
+        result.getBody().writeTo(new ByteArrayOutputStream());
+        verify(service, times(1)).writeSectorTree(any(OutputStream.class));
+    }
+
+    @Test
+    void testGetChildSectorsReturnsNotFoundForUnknownSector() {
+        when(service.getChildSectors(99L, 1)).thenReturn(Optional.empty());
+
+        ResponseEntity<List<SectorNodeDto>> result = controller.getChildSectors(99L, 1);
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
+    }
+
+    @Test
+    void testGetChildSectorsReturnsServiceResult() {
+        List<SectorNodeDto> expected = List.of(new SectorNodeDto(5L, "Printing", 1, 0));
+        when(service.getChildSectors(1L, 2)).thenReturn(Optional.of(expected));
+
+        ResponseEntity<List<SectorNodeDto>> result = controller.getChildSectors(1L, 2);
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertSame(expected, result.getBody());
+    }
+
+
+    @Test
+    void testGetStatsReturnsCounters() {
+        controller.getStats();
+        verify(popularityCounters, times(1)).getStats();
+    }
 }
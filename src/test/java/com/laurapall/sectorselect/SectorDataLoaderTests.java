@@ -2,25 +2,34 @@ package com.laurapall.sectorselect;
 
 import com.laurapall.sectorselect.entity.Sector;
 import com.laurapall.sectorselect.repository.SectorRepository;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogSnapshotStore;
+import com.laurapall.sectorselect.service.SectorCatalogValidator;
 import com.laurapall.sectorselect.service.SectorDataLoader;
+import com.laurapall.sectorselect.service.SectorService;
 import jakarta.persistence.EntityManager;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,7 +43,18 @@ class SectorDataLoaderTests {
 	@Mock
 	private SectorRepository repository;
 
-	@InjectMocks
+	@Mock
+	private SectorService sectorService;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@Spy
+	private SectorCatalogValidator validator = new SectorCatalogValidator("fail-fast", 32);
+
+	@Spy
+	private SectorCatalogSnapshotStore snapshotStore = new SectorCatalogSnapshotStore("");
+
 	private SectorDataLoader dataLoader;
 
 	private LogCaptor logCaptor;
@@ -42,6 +62,7 @@ class SectorDataLoaderTests {
 	@BeforeEach
 	void setUp() {
 		logCaptor = LogCaptor.forClass(SectorDataLoader.class);
+		dataLoader = loader(snapshotStore);
 	}
 
 	@Test
@@ -104,6 +125,67 @@ class SectorDataLoaderTests {
 		Assertions.assertEquals(2, map.get(342L).getLevel());
 	}
 
+	@Test
+	void testDataLoaderAddedSectorsHaveNestedSetAndPath() throws IOException {
+		when(repository.count()).thenReturn(0L);
+
+		dataLoader.loadIfEmpty();
+
+		ArgumentCaptor<Sector> captor = ArgumentCaptor.forClass(Sector.class);
+		verify(entityManager, times(4)).persist(captor.capture());
+		Map<Long, Sector> map = captor.getAllValues().stream().collect(Collectors.toMap(Sector::getId, s -> s));
+
+		Assertions.assertEquals("/1/6/342/", map.get(342L).getPath());
+		Assertions.assertEquals(1, map.get(1L).getLft());
+		Assertions.assertEquals(6, map.get(1L).getRgt());
+		Assertions.assertEquals(3, map.get(342L).getLft());
+		Assertions.assertEquals(4, map.get(342L).getRgt());
+		Assertions.assertEquals("/444/", map.get(444L).getPath());
+		Assertions.assertEquals(7, map.get(444L).getLft());
+	}
+
+	@Test
+	void testDataLoaderPublishesCatalogAfterLoad() throws IOException {
+		when(repository.count()).thenReturn(0L);
+
+		dataLoader.loadIfEmpty();
+
+		ArgumentCaptor<SectorCatalog> captor = ArgumentCaptor.forClass(SectorCatalog.class);
+		verify(sectorService, times(1)).publishCatalog(captor.capture());
+		Assertions.assertEquals(4, captor.getValue().size());
+	}
+
+	@Test
+	void testDataLoaderDoesNotPublishCatalogWhenSkipped() throws IOException {
+		when(repository.count()).thenReturn(5L);
+
+		dataLoader.loadIfEmpty();
+		verify(sectorService, never()).publishCatalog(any());
+	}
+
+	@Test
+	void testDataLoaderCommitsInOneChunkAndFlushes() throws IOException {
+		when(repository.count()).thenReturn(0L);
+
+		dataLoader.loadIfEmpty();
+		verify(transactionManager, times(1)).commit(any());
+		verify(entityManager, times(1)).flush();
+		verify(entityManager, times(1)).clear();
+	}
+
+	@Test
+	void testDataLoaderPersistsParentsBeforeChildren() throws IOException {
+		when(repository.count()).thenReturn(0L);
+
+		dataLoader.loadIfEmpty();
+
+		ArgumentCaptor<Sector> captor = ArgumentCaptor.forClass(Sector.class);
+		verify(entityManager, times(4)).persist(captor.capture());
+		List<Long> order = captor.getAllValues().stream().map(Sector::getId).toList();
+		Assertions.assertTrue(order.indexOf(1L) < order.indexOf(6L));
+		Assertions.assertTrue(order.indexOf(6L) < order.indexOf(342L));
+	}
+
 	@Test
 	void testDataLoaderLogsWarningForInvalidParent() throws IOException {
 		when(repository.count()).thenReturn(0L);
@@ -117,4 +199,62 @@ class SectorDataLoaderTests {
 		);
 	}
 
+	@Test
+	void testDataLoaderValidatesBeforePersisting() throws IOException {
+		when(repository.count()).thenReturn(0L);
+
+		dataLoader.loadIfEmpty();
+		verify(validator, times(1)).validate(any());
+		Assertions.assertTrue(logCaptor.getInfoLogs().stream().anyMatch(msg -> msg.contains("orphans 1")));
+	}
+
+	@Test
+	void testDataLoaderUsesSnapshotOnLaterStart(@TempDir Path directory) throws IOException {
+		when(repository.count()).thenReturn(0L);
+		SectorCatalogSnapshotStore store = new SectorCatalogSnapshotStore(directory.resolve("sectors.bin").toString());
+
+		loader(store).loadIfEmpty();
+		loader(store).loadIfEmpty();
+
+		verify(validator, times(1)).validate(any());
+		ArgumentCaptor<SectorCatalog> captor = ArgumentCaptor.forClass(SectorCatalog.class);
+		verify(sectorService, times(2)).publishCatalog(captor.capture());
+		SectorCatalog restored = captor.getAllValues().get(1);
+		Assertions.assertEquals(4, restored.size());
+		Assertions.assertEquals(2, restored.level(restored.indexOf(342L)));
+		Assertions.assertEquals(captor.getAllValues().get(0).name(0), restored.name(0));
+		Assertions.assertTrue(logCaptor.getInfoLogs().stream()
+				.anyMatch(msg -> msg.contains("Using sector catalog snapshot instead of parsing JSON.")));
+	}
+
+	@Test
+	void testDataLoaderValidatesAgainWhenPolicyChanged(@TempDir Path directory) throws IOException {
+		when(repository.count()).thenReturn(0L);
+		SectorCatalogSnapshotStore store = new SectorCatalogSnapshotStore(directory.resolve("sectors.bin").toString());
+		SectorCatalogValidator quarantine = spy(new SectorCatalogValidator("quarantine", 32));
+		new SectorDataLoader(repository, entityManager, sectorService, transactionManager, quarantine, store,
+				new DefaultResourceLoader(), "classpath:data/sectors.json").loadIfEmpty();
+
+		loader(store).loadIfEmpty();
+
+		verify(quarantine, times(1)).validate(any());
+		verify(validator, times(1)).validate(any());
+	}
+
+	@Test
+	void testDataLoaderLogsMissingCatalog() throws IOException {
+		when(repository.count()).thenReturn(0L);
+		dataLoader = new SectorDataLoader(repository, entityManager, sectorService, transactionManager, validator,
+				snapshotStore, new DefaultResourceLoader(), "classpath:data/missing.json");
+
+		dataLoader.loadIfEmpty();
+		verify(entityManager, never()).persist(any());
+		Assertions.assertTrue(logCaptor.getErrorLogs().stream()
+				.anyMatch(msg -> msg.contains("Sector catalog not found: classpath:data/missing.json")));
+	}
+
+	private SectorDataLoader loader(SectorCatalogSnapshotStore store) {
+		return new SectorDataLoader(repository, entityManager, sectorService, transactionManager, validator, store,
+				new DefaultResourceLoader(), "classpath:data/sectors.json");
+	}
 }
@@ -0,0 +1,130 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorCount;
+import com.laurapall.sectorselect.dto.SectorStatsDto;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorPopularityCounters;
+import com.laurapall.sectorselect.service.SectorService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SectorPopularityCountersTests {
+
+	@Mock
+	private SectorService sectorService;
+
+	@Mock
+	private SubmissionRepository submissionRepository;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private SectorPopularityCounters counters;
+
+	private final SectorCatalog catalog = new SectorCatalog.Builder()
+			.add(1L, SectorCatalog.NO_PARENT, "Root")
+			.add(2L, 1L, "Child")
+			.add(3L, 2L, "Grandchild")
+			.add(4L, 1L, "Other child")
+			.build();
+
+	@BeforeEach
+	void setUp() {
+		counters = new SectorPopularityCounters(sectorService, submissionRepository, transactionManager);
+		when(sectorService.getCatalog()).thenReturn(catalog);
+	}
+
+	/**
+	 * Helper method to find the stats of one sector.
+	 * @param id sector id.
+	 * @return stats, or null if the sector has no submissions.
+	 */
+	SectorStatsDto stats(long id) {
+		return counters.getStats().stream().filter(s -> s.getId() == id).findFirst().orElse(null);
+	}
+
+	@Test
+	void testChangesRollUpToAncestorsOncePerSubmission() {
+		counters.reconcile();
+
+		counters.recordChange(List.of(), List.of(3L, 4L));
+
+		Assertions.assertEquals(0, stats(1L).getSelected());
+		Assertions.assertEquals(1, stats(1L).getSelectedInSubtree());
+		Assertions.assertEquals(1, stats(2L).getSelectedInSubtree());
+		Assertions.assertEquals(1, stats(3L).getSelected());
+		Assertions.assertEquals(1, stats(4L).getSelected());
+	}
+
+	@Test
+	void testUpdateMovesCountsBetweenSubtrees() {
+		counters.reconcile();
+		counters.recordChange(List.of(), List.of(3L, 4L));
+
+		counters.recordChange(List.of(3L, 4L), List.of(4L));
+
+		Assertions.assertNull(stats(2L));
+		Assertions.assertNull(stats(3L));
+		Assertions.assertEquals(1, stats(1L).getSelectedInSubtree());
+		Assertions.assertEquals(1, stats(4L).getSelected());
+	}
+
+	@Test
+	void testDeleteRemovesCounts() {
+		counters.reconcile();
+		counters.recordChange(List.of(), List.of(2L));
+
+		counters.recordChange(List.of(2L), List.of());
+
+		Assertions.assertEquals(List.of(), counters.getStats());
+	}
+
+	@Test
+	void testReconcileLoadsCountsFromDatabase() {
+		when(submissionRepository.countPerSector()).thenReturn(List.of(new SectorCount(3L, 5L)));
+		when(submissionRepository.countPerSectorSubtree()).thenReturn(List.of(
+				new SectorCount(1L, 5L), new SectorCount(2L, 5L), new SectorCount(3L, 5L)));
+
+		counters.reconcile();
+
+		Assertions.assertEquals(5, stats(3L).getSelected());
+		Assertions.assertEquals(5, stats(1L).getSelectedInSubtree());
+		Assertions.assertNull(stats(4L));
+	}
+
+	@Test
+	void testStatsRecountInBackgroundAfterCatalogChange() {
+		Assertions.assertEquals(List.of(), counters.getStats());
+
+		verify(submissionRepository, timeout(5000).times(1)).countPerSectorSubtree();
+		verify(submissionRepository, times(1)).countPerSector();
+	}
+
+	@Test
+	void testChangesCommittedDuringRecountAreReplayed() {
+		counters.reconcile();
+		when(submissionRepository.countPerSector()).thenAnswer(invocation -> {
+			counters.recordChange(List.of(), List.of(3L));
+			return List.of();
+		});
+
+		counters.reconcile();
+
+		Assertions.assertEquals(1, stats(3L).getSelected());
+		Assertions.assertEquals(1, stats(1L).getSelectedInSubtree());
+	}
+}
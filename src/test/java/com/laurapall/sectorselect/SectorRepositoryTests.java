@@ -0,0 +1,225 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorLayoutRow;
+import com.laurapall.sectorselect.dto.SectorReloadResponse;
+import com.laurapall.sectorselect.dto.SectorRow;
+import com.laurapall.sectorselect.dto.SectorTreeDto;
+import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.repository.SectorRepository;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorCatalogReloader;
+import com.laurapall.sectorselect.service.SectorDataLoader;
+import com.laurapall.sectorselect.service.SectorService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SectorRepositoryTests {
+
+	private static final long MAX_TREE_STATEMENTS = 1;
+
+	/**
+	 * Read the stored layout, insert the new sector and shift the bounds after it.
+	 */
+	private static final long MAX_RELOAD_STATEMENTS = 3;
+
+	@Autowired
+	private SectorRepository repository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private SubmissionRepository submissionRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		long id = 1;
+		int next = 1;
+		for (int r = 0; r < 3; r++) {
+			Sector root = persistSector(id++, null);
+			for (int c = 0; c < 5; c++) {
+				Sector child = persistSector(id++, root);
+				for (int g = 0; g < 2; g++) {
+					persistSector(id++, child);
+				}
+			}
+			next = assignNestedSet(root, "/", next);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	/**
+	 * Helper method to persist a sector under a parent.
+	 * @param id sector id.
+	 * @param parent parent sector or null for root.
+	 * @return persisted sector.
+	 */
+	Sector persistSector(long id, Sector parent) {
+		Sector sector = new Sector();
+		sector.setId(id);
+		sector.setName("Sector " + id);
+		sector.setParent(parent);
+		sector.setLevel(parent == null ? 0 : parent.getLevel() + 1);
+		if (parent != null) parent.getChildren().add(sector);
+		return entityManager.persist(sector);
+	}
+
+	/**
+	 * Helper method to fill path and nested set bounds for a subtree.
+	 * @param sector subtree root.
+	 * @param parentPath parent path.
+	 * @param next next free nested set number.
+	 * @return next free nested set number after the subtree.
+	 */
+	int assignNestedSet(Sector sector, String parentPath, int next) {
+		sector.setPath(parentPath + sector.getId() + "/");
+		sector.setLft(next++);
+		for (Sector child : sector.getChildren()) {
+			next = assignNestedSet(child, sector.getPath(), next);
+		}
+		sector.setRgt(next++);
+		return next;
+	}
+
+	@Test
+	void testFindAllRowsReturnsParentIds() {
+		List<SectorRow> rows = repository.findAllRows();
+
+		Assertions.assertEquals(33, rows.size());
+		Assertions.assertNull(rows.get(0).parentId());
+		Assertions.assertEquals(1L, rows.get(1).parentId());
+	}
+
+	@Test
+	void testFindAllRowsKeepsStoredSiblingOrder() {
+		Sector root = entityManager.find(Sector.class, 1L);
+		List<Sector> children = new ArrayList<>(root.getChildren());
+		Collections.reverse(children);
+		int next = root.getLft() + 1;
+		for (Sector child : children) {
+			next = assignNestedSet(child, root.getPath(), next);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		SectorCatalog catalog = SectorCatalog.of(repository.findAllRows());
+
+		List<Long> childIds = new ArrayList<>();
+		for (int child = catalog.firstChild(catalog.indexOf(1L)); child != SectorCatalog.NONE;
+			 child = catalog.nextSibling(child)) {
+			childIds.add(catalog.id(child));
+		}
+		Assertions.assertEquals(List.of(14L, 11L, 8L, 5L, 2L), childIds);
+	}
+
+	@Test
+	void testSectorTreeBuildsWithFixedNumberOfStatements() {
+		List<SectorTreeDto> tree = new SectorService(repository).getSectorTree();
+
+		Assertions.assertEquals(3, tree.size());
+		Assertions.assertEquals(5, tree.get(0).getChildren().size());
+		Assertions.assertTrue(statistics.getPrepareStatementCount() <= MAX_TREE_STATEMENTS,
+				"Tree building issued " + statistics.getPrepareStatementCount() + " statements");
+	}
+
+	@Test
+	void testSubtreeByNestedSetRange() {
+		Sector root = repository.findById(1L).orElseThrow();
+		List<Sector> subtree = repository.findByLftBetweenOrderByLft(root.getLft(), root.getRgt());
+
+		Assertions.assertEquals(16, subtree.size());
+		Assertions.assertEquals(1L, subtree.get(0).getId());
+	}
+
+	@Test
+	void testSubtreeByPathPrefix() {
+		List<Sector> subtree = repository.findByPathStartingWithOrderByLft("/1/2/");
+
+		Assertions.assertEquals(List.of(2L, 3L, 4L), subtree.stream().map(Sector::getId).toList());
+	}
+
+	@Test
+	void testReloadInsertingOneSectorShiftsBoundsSetBased() throws IOException {
+		SectorCatalog.Builder builder = new SectorCatalog.Builder();
+		for (SectorRow row : repository.findAllRows()) {
+			builder.add(row.id(), row.parentId() == null ? SectorCatalog.NO_PARENT : row.parentId(), row.name());
+		}
+		SectorCatalog next = builder.add(100L, 1L, "Sector 100").build();
+		SectorDataLoader dataLoader = mock(SectorDataLoader.class);
+		when(dataLoader.readCatalog()).thenReturn(next);
+		SectorCatalogReloader reloader = new SectorCatalogReloader(dataLoader, repository, submissionRepository,
+				entityManager.getEntityManager(), mock(SectorService.class), transactionManager);
+		statistics.clear();
+
+		SectorReloadResponse response = reloader.reload();
+
+		Assertions.assertEquals(1, response.getAdded());
+		Assertions.assertTrue(statistics.getPrepareStatementCount() <= MAX_RELOAD_STATEMENTS,
+				"Reload issued " + statistics.getPrepareStatementCount() + " statements");
+		entityManager.clear();
+		List<SectorLayoutRow> stored = repository.findAllLayoutRows();
+		Assertions.assertEquals(next.size(), stored.size());
+		for (SectorLayoutRow row : stored) {
+			int index = next.indexOf(row.id());
+			Assertions.assertEquals(next.lft(index), row.lft(), "lft of " + row.id());
+			Assertions.assertEquals(next.rgt(index), row.rgt(), "rgt of " + row.id());
+			Assertions.assertEquals(next.path(index), row.path(), "path of " + row.id());
+		}
+	}
+
+	@Test
+	void testReloadMovingSubtreeRewritesPathsSetBased() throws IOException {
+		SectorCatalog.Builder builder = new SectorCatalog.Builder();
+		for (SectorRow row : repository.findAllRows()) {
+			long parentId = row.parentId() == null ? SectorCatalog.NO_PARENT : row.parentId();
+			builder.add(row.id(), row.id() == 2L ? 18L : parentId, row.name());
+		}
+		SectorCatalog next = builder.build();
+		SectorDataLoader dataLoader = mock(SectorDataLoader.class);
+		when(dataLoader.readCatalog()).thenReturn(next);
+		SectorCatalogReloader reloader = new SectorCatalogReloader(dataLoader, repository, submissionRepository,
+				entityManager.getEntityManager(), mock(SectorService.class), transactionManager);
+
+		SectorReloadResponse response = reloader.reload();
+
+		Assertions.assertEquals(1, response.getMoved());
+		entityManager.clear();
+		for (SectorLayoutRow row : repository.findAllLayoutRows()) {
+			int index = next.indexOf(row.id());
+			Assertions.assertEquals(next.lft(index), row.lft(), "lft of " + row.id());
+			Assertions.assertEquals(next.rgt(index), row.rgt(), "rgt of " + row.id());
+			Assertions.assertEquals(next.path(index), row.path(), "path of " + row.id());
+			Assertions.assertEquals(next.level(index), row.level(), "level of " + row.id());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorSearchIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+class SectorSearchIndexTests {
+
+	private SectorCatalog catalog;
+	private SectorSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		catalog = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Manufacturing")
+				.add(6L, 1L, "Food and Beverage")
+				.add(43L, 6L, "Beverages")
+				.add(39L, 6L, "Milk & dairy products")
+				.add(2L, SectorCatalog.NO_PARENT, "Service")
+				.add(99L, 2L, "Café services")
+				.build();
+		index = new SectorSearchIndex(catalog);
+	}
+
+	/**
+	 * Helper method to search and map results to sector ids.
+	 * @param query search text.
+	 * @param limit result limit.
+	 * @return matching sector ids.
+	 */
+	List<Long> searchIds(String query, int limit) {
+		return Arrays.stream(index.search(query, limit)).mapToObj(catalog::id).toList();
+	}
+
+	@Test
+	void testNormalizeStripsDiacriticsAndCase() {
+		Assertions.assertEquals("cafe services", SectorSearchIndex.normalize("  Café   SERVICES "));
+	}
+
+	@Test
+	void testShortQueryMatchesWordPrefix() {
+		Assertions.assertEquals(List.of(39L), searchIds("mi", 10));
+		Assertions.assertEquals(List.of(6L), searchIds("an", 10));
+	}
+
+	@Test
+	void testLongQueryMatchesSubstringWithPrefixMatchesFirst() {
+		Assertions.assertEquals(List.of(43L, 6L), searchIds("BEVERAGE", 10));
+	}
+
+	@Test
+	void testQueryIgnoresDiacritics() {
+		Assertions.assertEquals(List.of(99L), searchIds("cafe", 10));
+		Assertions.assertEquals(List.of(99L), searchIds("CAFÉ", 10));
+	}
+
+	@Test
+	void testSearchRespectsLimit() {
+		Assertions.assertEquals(1, searchIds("serv", 1).size());
+		Assertions.assertEquals(List.of(2L, 99L), searchIds("serv", 10));
+	}
+
+	@Test
+	void testNoMatchOrBlankQueryReturnsEmpty() {
+		Assertions.assertTrue(searchIds("xyz", 10).isEmpty());
+		Assertions.assertTrue(searchIds("   ", 10).isEmpty());
+	}
+
+}
@@ -1,7 +1,10 @@
 package com.laurapall.sectorselect;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.laurapall.sectorselect.dto.SectorNodeDto;
+import com.laurapall.sectorselect.dto.SectorRow;
+import com.laurapall.sectorselect.dto.SectorSearchResultDto;
 import com.laurapall.sectorselect.dto.SectorTreeDto;
-import com.laurapall.sectorselect.entity.Sector;
 import com.laurapall.sectorselect.repository.SectorRepository;
 import com.laurapall.sectorselect.service.SectorService;
 import nl.altindag.log.LogCaptor;
@@ -12,9 +15,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,36 +48,19 @@ class SectorServiceTests {
 	}
 
 	/**
-	 * Helper method to create a list with sample sectors.
-	 * @return sample sectors in a list.
+	 * Helper method to create a list with sample sector rows.
+	 * @return sample sector rows in a list.
 	 */
-	List<Sector> getListOfSectors() {
-		Sector sector1 = new Sector();
-		sector1.setId(1L);
-		sector1.setName("Sector 1");
-		sector1.setLevel(0);
-
-		Sector sector2 = new Sector();
-		sector2.setId(2L);
-		sector2.setName("Sector 2");
-		sector2.setLevel(1);
-		sector2.setParent(sector1);
-
-		Sector sector3 = new Sector();
-		sector3.setId(3L);
-		sector3.setName("Sector 3");
-		sector3.setLevel(2);
-		sector3.setParent(sector2);
-
-		sector1.getChildren().add(sector2);
-		sector2.getChildren().add(sector3);
-
+	List<SectorRow> getListOfSectors() {
+		SectorRow sector1 = new SectorRow(1L, "Sector 1", 0, null);
+		SectorRow sector2 = new SectorRow(2L, "Sector 2", 1, 1L);
+		SectorRow sector3 = new SectorRow(3L, "Sector 3", 2, 2L);
 		return List.of(sector1, sector2, sector3);
 	}
 
 	@Test
 	void testGetSectorTreeCorrectAmountOfRootsAndSectors() {
-		when(repository.findAll()).thenReturn(getListOfSectors());
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
 		service.getSectorTree();
 		Assertions.assertTrue(
 				logCaptor.getLogs().stream()
@@ -74,14 +70,14 @@ class SectorServiceTests {
 
 	@Test
 	void testGetSectorListCorrectRootSector() {
-		when(repository.findAll()).thenReturn(getListOfSectors());
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
 		List<SectorTreeDto> result = service.getSectorTree();
 		Assertions.assertEquals(1L, result.get(0).getId());
 	}
 
 	@Test
 	void testGetSectorListCorrectChildrenForSectors() {
-		when(repository.findAll()).thenReturn(getListOfSectors());
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
 		List<SectorTreeDto> result = service.getSectorTree();
 
 		SectorTreeDto dto1 = result.get(0);
@@ -100,7 +96,7 @@ class SectorServiceTests {
 
 	@Test
 	void testGetSectorListCorrectLevelsForSectors() {
-		when(repository.findAll()).thenReturn(getListOfSectors());
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
 		List<SectorTreeDto> result = service.getSectorTree();
 		SectorTreeDto dto1 = result.get(0);
 		SectorTreeDto dto2 = dto1.getChildren().get(0);
@@ -113,9 +109,133 @@ class SectorServiceTests {
 
 	@Test
 	void testGetSectorTreeNoSectorsReturnsEmptyList() {
-		when(repository.findAll()).thenReturn(List.of());
+		when(repository.findAllRows()).thenReturn(List.of());
 		List<SectorTreeDto> result = service.getSectorTree();
 		Assertions.assertTrue(result.isEmpty());
 	}
 
+	@Test
+	void testGetSectorTreeServesSnapshotWithoutRepeatedQueries() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		List<SectorTreeDto> first = service.getSectorTree();
+		List<SectorTreeDto> second = service.getSectorTree();
+
+		Assertions.assertSame(first, second);
+		verify(repository, times(1)).findAllRows();
+	}
+
+	@Test
+	void testInvalidateCatalogRebuildsSnapshot() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		long before = service.currentSnapshot().getVersion();
+
+		long after = service.invalidateCatalog();
+		Assertions.assertTrue(after > before);
+		Assertions.assertEquals(after, service.currentSnapshot().getVersion());
+		verify(repository, times(2)).findAllRows();
+	}
+
+	@Test
+	void testSnapshotChildrenAreImmutable() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		List<SectorTreeDto> result = service.getSectorTree();
+
+		Assertions.assertThrows(UnsupportedOperationException.class,
+				() -> result.get(0).getChildren().add(new SectorTreeDto(9L, "Sector 9", 1)));
+	}
+
+	@Test
+	void testWriteSectorTreeMatchesTreeJson() throws IOException {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		service.writeSectorTree(out);
+
+		ObjectMapper mapper = new ObjectMapper();
+		Assertions.assertEquals(mapper.valueToTree(service.getSectorTree()), mapper.readTree(out.toByteArray()));
+	}
+
+	@Test
+	void testGetRootSectorsReturnsChildCounts() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		List<SectorNodeDto> result = service.getRootSectors(1);
+
+		Assertions.assertEquals(1, result.size());
+		Assertions.assertEquals(1L, result.get(0).getChildCount());
+		Assertions.assertTrue(result.get(0).getChildren().isEmpty());
+	}
+
+	@Test
+	void testGetChildSectorsExpandsToRequestedDepth() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		Optional<List<SectorNodeDto>> result = service.getChildSectors(1L, 5);
+
+		Assertions.assertTrue(result.isPresent());
+		SectorNodeDto child = result.get().get(0);
+		Assertions.assertEquals(2L, child.getId());
+		Assertions.assertEquals(3L, child.getChildren().get(0).getId());
+		Assertions.assertEquals(0L, child.getChildren().get(0).getChildCount());
+	}
+
+	@Test
+	void testGetChildSectorsUnknownSectorReturnsEmpty() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		Assertions.assertTrue(service.getChildSectors(99L, 1).isEmpty());
+	}
+
+	@Test
+	void testGetDescendantsAndAncestorsFromCatalog() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+
+		Assertions.assertEquals(List.of(2L, 3L),
+				service.getDescendants(1L).orElseThrow().stream().map(SectorRow::id).toList());
+		Assertions.assertEquals(List.of(1L, 2L),
+				service.getAncestors(3L).orElseThrow().stream().map(SectorRow::id).toList());
+		Assertions.assertTrue(service.getDescendants(99L).isEmpty());
+	}
+
+	@Test
+	void testSearchSectorsReturnsAncestorPath() {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		List<SectorSearchResultDto> result = service.searchSectors("sector 3", 10);
+
+		Assertions.assertEquals(1, result.size());
+		Assertions.assertEquals(3L, result.get(0).getId());
+		Assertions.assertEquals(List.of("Sector 1", "Sector 2"), result.get(0).getPath());
+	}
+
+	@Test
+	void testRetiringSectorsWaitsForWritingTransactions() throws Exception {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+		CompletableFuture<Void> retiring;
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			Assertions.assertEquals(3, service.getCatalogForWrite().size());
+			retiring = CompletableFuture.runAsync(() -> service.retireSectors(List.of(3L)));
+			Assertions.assertThrows(TimeoutException.class, () -> retiring.get(100, TimeUnit.MILLISECONDS));
+			Assertions.assertFalse(service.isRetired(3L));
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		retiring.get(5, TimeUnit.SECONDS);
+		Assertions.assertTrue(service.isRetired(3L));
+		Assertions.assertFalse(service.isRetired(2L));
+
+		service.retireSectors(List.of());
+		Assertions.assertFalse(service.isRetired(3L));
+	}
+
+	@Test
+	void testCatalogForWriteOutsideTransactionKeepsNoLock() throws Exception {
+		when(repository.findAllRows()).thenReturn(getListOfSectors());
+
+		service.getCatalogForWrite();
+
+		CompletableFuture.runAsync(() -> service.retireSectors(List.of(3L))).get(5, TimeUnit.SECONDS);
+		Assertions.assertTrue(service.isRetired(3L));
+	}
+
 }
@@ -0,0 +1,80 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.controller.SubmissionAdminController;
+import com.laurapall.sectorselect.dto.SubmissionImportStatus;
+import com.laurapall.sectorselect.dto.SubmissionRateLimitStats;
+import com.laurapall.sectorselect.service.SubmissionImporter;
+import com.laurapall.sectorselect.service.SubmissionRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionAdminControllerTests {
+
+    @Mock
+    private SubmissionImporter importer;
+
+    @Mock
+    private SubmissionRateLimiter rateLimiter;
+
+    @InjectMocks
+    private SubmissionAdminController controller;
+
+    @Test
+    void testStartImportReturnsAcceptedWithLocation() throws IOException {
+        SubmissionImportStatus status = new SubmissionImportStatus();
+        status.setId("abc");
+        status.setState(SubmissionImportStatus.State.RUNNING);
+        when(importer.start("submissions.ndjson")).thenReturn(status);
+
+        ResponseEntity<SubmissionImportStatus> response = controller.startImport("submissions.ndjson");
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        Assertions.assertEquals(URI.create("/api/submission/admin/import/abc"), response.getHeaders().getLocation());
+        Assertions.assertSame(status, response.getBody());
+    }
+
+    @Test
+    void testStartImportReturnsBadRequestForUnusableFile() throws IOException {
+        when(importer.start("../secret")).thenThrow(new IllegalArgumentException("outside"));
+
+        ResponseEntity<SubmissionImportStatus> response = controller.startImport("../secret");
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testStartImportReturnsConflictWhileRunning() throws IOException {
+        when(importer.start("submissions.ndjson")).thenThrow(new IllegalStateException("running"));
+
+        ResponseEntity<SubmissionImportStatus> response = controller.startImport("submissions.ndjson");
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void testImportStatusReturnsNotFoundForUnknownImport() {
+        when(importer.status("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<SubmissionImportStatus> response = controller.importStatus("missing");
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testRateLimitStatsReturnsLimiterCounters() {
+        SubmissionRateLimitStats stats = new SubmissionRateLimitStats();
+        stats.setRejectedByRate(3);
+        when(rateLimiter.getStats()).thenReturn(stats);
+
+        Assertions.assertSame(stats, controller.rateLimitStats());
+    }
+}
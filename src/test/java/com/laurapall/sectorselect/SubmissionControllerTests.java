@@ -1,19 +1,42 @@
 package com.laurapall.sectorselect;
 
 import com.laurapall.sectorselect.controller.SubmissionController;
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionDto;
+import com.laurapall.sectorselect.dto.SubmissionIdPageDto;
+import com.laurapall.sectorselect.dto.SubmissionPageDto;
 import com.laurapall.sectorselect.dto.SubmissionRequest;
 import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.dto.SubmissionTicketResponse;
+import com.laurapall.sectorselect.entity.Submission;
+import com.laurapall.sectorselect.service.SubmissionExporter;
+import com.laurapall.sectorselect.service.SubmissionIdempotencyCache;
+import com.laurapall.sectorselect.service.SubmissionSectorIndex;
 import com.laurapall.sectorselect.service.SubmissionService;
+import com.laurapall.sectorselect.service.SubmissionWriteQueue;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,6 +45,18 @@ class SubmissionControllerTests {
     @Mock
     private SubmissionService service;
 
+    @Mock
+    private SubmissionWriteQueue writeQueue;
+
+    @Mock
+    private SubmissionIdempotencyCache idempotencyCache;
+
+    @Mock
+    private SubmissionSectorIndex sectorIndex;
+
+    @Mock
+    private SubmissionExporter exporter;
+
     @InjectMocks
     private SubmissionController controller;
 
@@ -33,7 +68,7 @@ class SubmissionControllerTests {
         when(service.createSubmission(any(SubmissionRequest.class)))
                 .thenReturn(response);
 
-        ResponseEntity<SubmissionResponse> result = controller.submit(new SubmissionRequest());
+        ResponseEntity<SubmissionResponse> result = controller.submit(new SubmissionRequest(), null, null);
 
         Assertions.assertEquals(HttpStatus.CREATED, result.getStatusCode());
         Assertions.assertSame(response, result.getBody());
@@ -47,7 +82,7 @@ class SubmissionControllerTests {
         when(service.createSubmission(any(SubmissionRequest.class)))
                 .thenReturn(response);
 
-        ResponseEntity<SubmissionResponse> result = controller.submit(new SubmissionRequest());
+        ResponseEntity<SubmissionResponse> result = controller.submit(new SubmissionRequest(), null, null);
 
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
         Assertions.assertSame(response, result.getBody());
@@ -58,13 +93,13 @@ class SubmissionControllerTests {
         SubmissionResponse response = new SubmissionResponse();
         response.setValid(true);
 
-        when(service.updateCurrentSubmission(any(SubmissionRequest.class)))
+        when(service.updateCurrentSubmission(any(SubmissionRequest.class), isNull()))
                 .thenReturn(response);
 
         SubmissionRequest request = new SubmissionRequest();
         request.setEditSubmissionId(123L);
 
-        ResponseEntity<SubmissionResponse> result = controller.submit(request);
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, null, null);
 
         Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
         Assertions.assertSame(response, result.getBody());
@@ -75,15 +110,227 @@ class SubmissionControllerTests {
         SubmissionResponse response = new SubmissionResponse();
         response.setValid(false);
 
-        when(service.updateCurrentSubmission(any(SubmissionRequest.class)))
+        when(service.updateCurrentSubmission(any(SubmissionRequest.class), isNull()))
                 .thenReturn(response);
 
         SubmissionRequest request = new SubmissionRequest();
         request.setEditSubmissionId(123L);
 
-        ResponseEntity<SubmissionResponse> result = controller.submit(request);
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, null, null);
 
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
         Assertions.assertSame(response, result.getBody());
     }
+
+    @Test
+    void testCreateReturnsVersionAsETag() {
+        SubmissionResponse response = new SubmissionResponse();
+        response.setValid(true);
+        response.setVersion(0L);
+        when(service.createSubmission(any(SubmissionRequest.class))).thenReturn(response);
+
+        ResponseEntity<SubmissionResponse> result = controller.submit(new SubmissionRequest(), null, null);
+
+        Assertions.assertEquals("\"0\"", result.getHeaders().getETag());
+    }
+
+    @Test
+    void testUpdatePassesIfMatchVersion() {
+        SubmissionResponse response = new SubmissionResponse();
+        response.setValid(true);
+        response.setVersion(4L);
+        when(service.updateCurrentSubmission(any(SubmissionRequest.class), eq(3L))).thenReturn(response);
+        SubmissionRequest request = new SubmissionRequest();
+        request.setEditSubmissionId(123L);
+
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, null, "W/\"3\"");
+
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertEquals("\"4\"", result.getHeaders().getETag());
+    }
+
+    @Test
+    void testUpdateReturnsPreconditionFailedWhenStale() {
+        when(service.updateCurrentSubmission(any(SubmissionRequest.class), eq(3L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Submission.class, 123L));
+        SubmissionRequest request = new SubmissionRequest();
+        request.setEditSubmissionId(123L);
+
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, null, "\"3\"");
+
+        Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, result.getStatusCode());
+    }
+
+    @Test
+    void testUpdateReturnsPreconditionFailedForMalformedIfMatch() {
+        SubmissionRequest request = new SubmissionRequest();
+        request.setEditSubmissionId(123L);
+
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, null, "abc");
+
+        Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, result.getStatusCode());
+        verify(service, never()).updateCurrentSubmission(any(SubmissionRequest.class), any());
+    }
+
+    @Test
+    void testSubmitWithIdempotencyKeyGoesThroughCache() {
+        SubmissionRequest request = new SubmissionRequest();
+        ResponseEntity<SubmissionResponse> cached = ResponseEntity.status(HttpStatus.CREATED).build();
+        when(idempotencyCache.execute(eq("key-1"), eq(request), any())).thenReturn(cached);
+
+        ResponseEntity<SubmissionResponse> result = controller.submit(request, "key-1", null);
+
+        Assertions.assertSame(cached, result);
+        verify(service, never()).createSubmission(any(SubmissionRequest.class));
+    }
+
+    @Test
+    void testSubmitRejectsBlankOrLongIdempotencyKey() {
+        String tooLong = "k".repeat(SubmissionIdempotencyCache.MAX_KEY_LENGTH + 1);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                controller.submit(new SubmissionRequest(), " ", null).getStatusCode());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                controller.submit(new SubmissionRequest(), tooLong, null).getStatusCode());
+        verify(idempotencyCache, never()).execute(any(), any(), any());
+    }
+
+    @Test
+    void testBatchReturnsServiceResult() {
+        SubmissionBatchResponse response = new SubmissionBatchResponse();
+        when(service.createSubmissions(anyList())).thenReturn(response);
+
+        ResponseEntity<SubmissionBatchResponse> result = controller.submitBatch(List.of(new SubmissionRequest()));
+
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertSame(response, result.getBody());
+    }
+
+    @Test
+    void testBatchRejectsEmptyAndOversizedBatches() {
+        List<SubmissionRequest> oversized = Collections.nCopies(SubmissionService.MAX_BATCH_SIZE + 1,
+                new SubmissionRequest());
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, controller.submitBatch(List.of()).getStatusCode());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, controller.submitBatch(oversized).getStatusCode());
+        verify(service, never()).createSubmissions(anyList());
+    }
+
+    @Test
+    void testAsyncReturnsAcceptedWithTicket() {
+        when(service.validate(any(SubmissionRequest.class))).thenReturn(List.of());
+        when(writeQueue.enqueue(any(SubmissionRequest.class))).thenReturn(Optional.of("abc"));
+
+        ResponseEntity<SubmissionTicketResponse> result = controller.submitAsync(new SubmissionRequest());
+
+        Assertions.assertEquals(HttpStatus.ACCEPTED, result.getStatusCode());
+        Assertions.assertEquals("abc", result.getBody().getTicket());
+        Assertions.assertEquals("/api/submission/status/abc", result.getHeaders().getLocation().toString());
+    }
+
+    @Test
+    void testAsyncReturnsTooManyRequestsWhenQueueIsFull() {
+        when(service.validate(any(SubmissionRequest.class))).thenReturn(List.of());
+        when(writeQueue.enqueue(any(SubmissionRequest.class))).thenReturn(Optional.empty());
+
+        ResponseEntity<SubmissionTicketResponse> result = controller.submitAsync(new SubmissionRequest());
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, result.getStatusCode());
+        Assertions.assertEquals("1", result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testAsyncRejectsInvalidRequestWithoutQueueing() {
+        when(service.validate(any(SubmissionRequest.class))).thenReturn(List.of("name is required"));
+
+        ResponseEntity<SubmissionTicketResponse> result = controller.submitAsync(new SubmissionRequest());
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        verify(writeQueue, never()).enqueue(any());
+    }
+
+    @Test
+    void testStatusReturnsNotFoundForUnknownTicket() {
+        when(writeQueue.status("missing")).thenReturn(Optional.empty());
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, controller.getStatus("missing").getStatusCode());
+    }
+
+    @Test
+    void testGetSubmissionReturnsDtoWithETag() {
+        SubmissionDto submission = new SubmissionDto(5L, "Name", 2L, List.of(1L));
+        when(service.getSubmission(5L)).thenReturn(Optional.of(submission));
+
+        ResponseEntity<SubmissionDto> result = controller.getSubmission(5L);
+
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertEquals("\"2\"", result.getHeaders().getETag());
+        Assertions.assertSame(submission, result.getBody());
+    }
+
+    @Test
+    void testGetSubmissionReturnsNotFound() {
+        when(service.getSubmission(5L)).thenReturn(Optional.empty());
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, controller.getSubmission(5L).getStatusCode());
+    }
+
+    @Test
+    void testGetSubmissionsReturnsServicePage() {
+        SubmissionPageDto page = new SubmissionPageDto(List.of(), null);
+        when(service.getSubmissions(10L, 20)).thenReturn(page);
+
+        Assertions.assertSame(page, controller.getSubmissions(10L, 20));
+    }
+
+    @Test
+    void testBySectorReturnsIndexResult() {
+        SubmissionIdPageDto page = new SubmissionIdPageDto(1, List.of(7L), null);
+        when(sectorIndex.isReady()).thenReturn(true);
+        when(sectorIndex.findSubmissions(3L, true, null, 1000)).thenReturn(Optional.of(page));
+
+        ResponseEntity<SubmissionIdPageDto> result = controller.getSubmissionsBySector(3L, true, null, 1000);
+
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertSame(page, result.getBody());
+    }
+
+    @Test
+    void testBySectorReturnsNotFoundForUnknownSector() {
+        when(sectorIndex.isReady()).thenReturn(true);
+        when(sectorIndex.findSubmissions(3L, false, null, 1000)).thenReturn(Optional.empty());
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND,
+                controller.getSubmissionsBySector(3L, false, null, 1000).getStatusCode());
+    }
+
+    @Test
+    void testBySectorReturnsUnavailableWhileBuilding() {
+        when(sectorIndex.isReady()).thenReturn(false);
+
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                controller.getSubmissionsBySector(3L, false, null, 1000).getStatusCode());
+    }
+
+    @Test
+    void testExportStreamsThroughExporter() throws Exception {
+        ResponseEntity<StreamingResponseBody> result = controller.export("csv", 42L);
+
+        Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
+        Assertions.assertEquals("text/csv;charset=UTF-8", result.getHeaders().getContentType().toString());
+        Assertions.assertEquals("attachment; filename=\"submissions.csv\"",
+                result.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.getBody().writeTo(out);
+        verify(exporter).export(out, SubmissionExporter.Format.CSV, 42L);
+    }
+
+    @Test
+    void testExportRejectsUnknownFormat() throws Exception {
+        ResponseEntity<StreamingResponseBody> result = controller.export("xml", null);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        verify(exporter, never()).export(any(), any(), any());
+    }
 }
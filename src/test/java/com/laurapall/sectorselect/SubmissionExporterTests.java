@@ -0,0 +1,117 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionSectorView;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorBitmapCodec;
+import com.laurapall.sectorselect.service.SubmissionExporter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionExporterTests {
+
+	@Mock
+	private SubmissionRepository submissionRepository;
+
+	@InjectMocks
+	private SubmissionExporter exporter;
+
+	/**
+	 * One exported row, as the native query returns it.
+	 */
+	private record Row(Long getId, String getName, Long getVersion, Long getSectorId, byte[] getSectorBitmap)
+			implements SubmissionSectorView {
+	}
+
+	/**
+	 * Helper method to create joined rows of three submissions: two sectors, a bitmap and no sectors.
+	 * @return rows in id order.
+	 */
+	Stream<SubmissionSectorView> rows() {
+		return Stream.of(
+				new Row(1L, "Client, \"Quoted\"", 0L, 2L, null),
+				new Row(1L, "Client, \"Quoted\"", 0L, 5L, null),
+				new Row(2L, "Bitmap", 3L, null, SectorBitmapCodec.encode(List.of(7L, 4L))),
+				new Row(3L, "Empty", 1L, null, null));
+	}
+
+	/**
+	 * Helper method to export into a string.
+	 * @param format output format.
+	 * @param after id to continue after, or null.
+	 * @return exported text.
+	 * @throws IOException if writing fails.
+	 */
+	String export(SubmissionExporter.Format format, Long after) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.export(out, format, after);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testNdjsonWritesOneLinePerSubmission() throws IOException {
+		when(submissionRepository.streamExportRows(0L)).thenReturn(rows());
+
+		String result = export(SubmissionExporter.Format.NDJSON, null);
+
+		Assertions.assertEquals("""
+				{"id":1,"name":"Client, \\"Quoted\\"","version":0,"sectorIds":[2,5]}
+				{"id":2,"name":"Bitmap","version":3,"sectorIds":[4,7]}
+				{"id":3,"name":"Empty","version":1,"sectorIds":[]}
+				""", result);
+	}
+
+	@Test
+	void testCsvQuotesNamesAndJoinsSectorIds() throws IOException {
+		when(submissionRepository.streamExportRows(0L)).thenReturn(rows());
+
+		String result = export(SubmissionExporter.Format.CSV, null);
+
+		Assertions.assertEquals("id,name,version,sector_ids\r\n"
+				+ "1,\"Client, \"\"Quoted\"\"\",0,2 5\r\n"
+				+ "2,Bitmap,3,4 7\r\n"
+				+ "3,Empty,1,\r\n", result);
+	}
+
+	@Test
+	void testExportContinuesAfterGivenId() throws IOException {
+		when(submissionRepository.streamExportRows(2L)).thenReturn(Stream.of(new Row(3L, "Empty", 1L, null, null)));
+
+		String result = export(SubmissionExporter.Format.NDJSON, 2L);
+
+		Assertions.assertEquals("{\"id\":3,\"name\":\"Empty\",\"version\":1,\"sectorIds\":[]}\n", result);
+	}
+
+	@Test
+	void testWriteFailureIsReported() {
+		when(submissionRepository.streamExportRows(0L)).thenReturn(rows());
+		OutputStream broken = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("client went away");
+			}
+		};
+
+		Assertions.assertThrows(IOException.class,
+				() -> exporter.export(broken, SubmissionExporter.Format.CSV, null));
+	}
+
+	@Test
+	void testUnknownFormatIsRejected() {
+		Assertions.assertEquals(SubmissionExporter.Format.CSV, SubmissionExporter.Format.of(" CSV "));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SubmissionExporter.Format.of("xml"));
+	}
+}
@@ -0,0 +1,157 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.service.SubmissionIdempotencyCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SubmissionIdempotencyCacheTests {
+
+	private final SubmissionIdempotencyCache cache = new SubmissionIdempotencyCache(2, 60, 5);
+
+	private SubmissionRequest request(String name) {
+		SubmissionRequest request = new SubmissionRequest();
+		request.setName(name);
+		request.setSectorIds(List.of(1L, 2L));
+		request.setAgree(true);
+		return request;
+	}
+
+	private ResponseEntity<SubmissionResponse> created(long id) {
+		SubmissionResponse response = new SubmissionResponse();
+		response.setValid(true);
+		response.setId(id);
+		return ResponseEntity.status(HttpStatus.CREATED).body(response);
+	}
+
+	@Test
+	void testReplayReturnsFirstResponseWithoutRunningAgain() {
+		AtomicInteger calls = new AtomicInteger();
+
+		ResponseEntity<SubmissionResponse> first = cache.execute("a", request("Name"),
+				() -> created(calls.incrementAndGet()));
+		ResponseEntity<SubmissionResponse> replay = cache.execute("a", request("Name"),
+				() -> created(calls.incrementAndGet()));
+
+		Assertions.assertSame(first, replay);
+		Assertions.assertEquals(1, calls.get());
+	}
+
+	@Test
+	void testKeyReusedForDifferentRequestIsUnprocessable() {
+		cache.execute("a", request("Name"), () -> created(1));
+
+		ResponseEntity<SubmissionResponse> result = cache.execute("a", request("Other"), () -> created(2));
+
+		Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, result.getStatusCode());
+	}
+
+	@Test
+	void testOldestKeyIsEvictedWhenFull() {
+		AtomicInteger calls = new AtomicInteger();
+		cache.execute("a", request("Name"), () -> created(calls.incrementAndGet()));
+		cache.execute("b", request("Name"), () -> created(calls.incrementAndGet()));
+		cache.execute("c", request("Name"), () -> created(calls.incrementAndGet()));
+
+		cache.execute("a", request("Name"), () -> created(calls.incrementAndGet()));
+
+		Assertions.assertEquals(4, calls.get());
+		Assertions.assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testExpiredKeyRunsAgain() {
+		SubmissionIdempotencyCache shortLived = new SubmissionIdempotencyCache(10, 0, 5);
+		AtomicInteger calls = new AtomicInteger();
+
+		shortLived.execute("a", request("Name"), () -> created(calls.incrementAndGet()));
+		shortLived.execute("a", request("Name"), () -> created(calls.incrementAndGet()));
+
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	void testFailedRequestIsForgotten() {
+		Assertions.assertThrows(IllegalStateException.class, () -> cache.execute("a", request("Name"), () -> {
+			throw new IllegalStateException("database down");
+		}));
+
+		ResponseEntity<SubmissionResponse> retry = cache.execute("a", request("Name"), () -> created(1));
+
+		Assertions.assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+		Assertions.assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testConcurrentDuplicateWaitsForFirstResult() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<ResponseEntity<SubmissionResponse>> first = CompletableFuture.supplyAsync(() ->
+				cache.execute("a", request("Name"), () -> {
+					started.countDown();
+					awaitQuietly(release);
+					return created(calls.incrementAndGet());
+				}));
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<ResponseEntity<SubmissionResponse>> duplicate = CompletableFuture.supplyAsync(() ->
+				cache.execute("a", request("Name"), () -> created(calls.incrementAndGet())));
+
+		release.countDown();
+
+		Assertions.assertSame(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, calls.get());
+	}
+
+	@Test
+	void testClientErrorIsNotRemembered() {
+		ResponseEntity<SubmissionResponse> rejected = cache.execute("a", request("Name"),
+				() -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+		ResponseEntity<SubmissionResponse> retry = cache.execute("a", request("Name"), () -> created(1));
+
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, rejected.getStatusCode());
+		Assertions.assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+	}
+
+	@Test
+	void testRunningKeyIsNotEvictedWhenFull() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<ResponseEntity<SubmissionResponse>> first = CompletableFuture.supplyAsync(() ->
+				cache.execute("a", request("Name"), () -> {
+					started.countDown();
+					awaitQuietly(release);
+					return created(calls.incrementAndGet());
+				}));
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+		cache.execute("b", request("Name"), () -> created(10));
+		cache.execute("c", request("Name"), () -> created(11));
+		CompletableFuture<ResponseEntity<SubmissionResponse>> duplicate = CompletableFuture.supplyAsync(() ->
+				cache.execute("a", request("Name"), () -> created(calls.incrementAndGet())));
+
+		release.countDown();
+
+		Assertions.assertSame(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, calls.get());
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionImportReject;
+import com.laurapall.sectorselect.dto.SubmissionImportStatus;
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorService;
+import com.laurapall.sectorselect.service.SubmissionImporter;
+import com.laurapall.sectorselect.service.SubmissionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionImporterTests {
+
+	@Mock
+	private SubmissionService submissionService;
+
+	@Mock
+	private SectorService sectorService;
+
+	@TempDir
+	Path directory;
+
+	private SubmissionImporter importer;
+
+	@BeforeEach
+	void setUp() {
+		SectorCatalog catalog = new SectorCatalog.Builder().add(1L, SectorCatalog.NO_PARENT, "Manufacturing").build();
+		lenient().when(sectorService.getCatalog()).thenReturn(catalog);
+		lenient().when(submissionService.validate(any(SubmissionRequest.class), any(SectorCatalog.class)))
+				.thenAnswer(invocation -> {
+					SubmissionRequest request = invocation.getArgument(0);
+					List<String> errors = new ArrayList<>();
+					if (request.getName() == null || request.getName().isBlank()) errors.add("name is required");
+					return errors;
+				});
+		importer = new SubmissionImporter(submissionService, sectorService, directory, 2, 2, 2, 3);
+	}
+
+	/**
+	 * Helper method to write an import file.
+	 * @param lines file lines.
+	 * @return file name.
+	 * @throws IOException if the file cannot be written.
+	 */
+	String importFile(String... lines) throws IOException {
+		Files.write(directory.resolve("submissions.ndjson"), List.of(lines), StandardCharsets.UTF_8);
+		return "submissions.ndjson";
+	}
+
+	/**
+	 * Helper method to create a valid import line.
+	 * @param name submission name.
+	 * @return JSON line.
+	 */
+	String line(String name) {
+		return "{\"name\":\"" + name + "\",\"sectorIds\":[1],\"agree\":true}";
+	}
+
+	/**
+	 * Helper method to answer batch saves with a result per request, valid unless the name is "Invalid".
+	 */
+	void answerBatches() {
+		when(submissionService.createSubmissions(anyList())).thenAnswer(invocation -> {
+			List<SubmissionRequest> requests = invocation.getArgument(0);
+			SubmissionBatchResponse response = new SubmissionBatchResponse();
+			response.setResults(requests.stream().map(request -> {
+				SubmissionResponse result = new SubmissionResponse();
+				result.setValid(!request.getName().equals("Invalid"));
+				if (!result.isValid()) result.setErrors(List.of("submission not found"));
+				return result;
+			}).toList());
+			return response;
+		});
+	}
+
+	/**
+	 * Helper method to start an import and wait until it has finished.
+	 * @param fileName file name.
+	 * @return final status.
+	 * @throws Exception if starting fails or the import does not finish in time.
+	 */
+	SubmissionImportStatus runImport(String fileName) throws Exception {
+		String id = importer.start(fileName).getId();
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			SubmissionImportStatus status = importer.status(id).orElseThrow();
+			if (status.getState() != SubmissionImportStatus.State.RUNNING) return status;
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Import did not finish");
+	}
+
+	List<Long> rejectedLines(SubmissionImportStatus status) {
+		return status.getSampleRejects().stream()
+				.sorted(Comparator.comparingLong(SubmissionImportReject::line))
+				.map(SubmissionImportReject::line)
+				.toList();
+	}
+
+	@Test
+	void testImportWritesValidLinesInChunksAndRejectsOthers() throws Exception {
+		answerBatches();
+		String file = importFile(
+				line("A"),
+				"",
+				"not json",
+				line(""),
+				line("B"),
+				"{\"name\":\"C\",\"sectorIds\":[1],\"agree\":true,\"editSubmissionId\":4}",
+				line("D"),
+				line("E"),
+				line("F"));
+
+		SubmissionImportStatus status = runImport(file);
+		Assertions.assertEquals(SubmissionImportStatus.State.DONE, status.getState());
+		Assertions.assertNull(status.getError());
+		Assertions.assertEquals(9, status.getLinesRead());
+		Assertions.assertEquals(5, status.getWritten());
+		Assertions.assertEquals(3, status.getRejected());
+		Assertions.assertEquals(List.of(3L, 4L, 6L), rejectedLines(status));
+		verify(submissionService, times(2)).createSubmissions(anyList());
+
+		List<String> rejects = Files.readAllLines(directory.resolve(status.getRejectsFile()), StandardCharsets.UTF_8);
+		Assertions.assertEquals(3, rejects.size());
+		Assertions.assertTrue(rejects.stream().anyMatch(reject -> reject.startsWith("{\"line\":4,")
+				&& reject.contains("name is required")));
+	}
+
+	@Test
+	void testImportRejectsLinesFailedBySave() throws Exception {
+		answerBatches();
+		String file = importFile(line("A"), line("Invalid"));
+
+		SubmissionImportStatus status = runImport(file);
+		Assertions.assertEquals(1, status.getWritten());
+		Assertions.assertEquals(List.of(2L), rejectedLines(status));
+		Assertions.assertEquals(List.of("submission not found"), status.getSampleRejects().get(0).errors());
+	}
+
+	@Test
+	void testImportRejectsChunkThatCannotBeSaved() throws Exception {
+		when(submissionService.createSubmissions(anyList())).thenThrow(new IllegalStateException("Database down"));
+		String file = importFile(line("A"), line("B"));
+
+		SubmissionImportStatus status = runImport(file);
+		Assertions.assertEquals(SubmissionImportStatus.State.DONE, status.getState());
+		Assertions.assertEquals(0, status.getWritten());
+		Assertions.assertEquals(List.of(1L, 2L), rejectedLines(status));
+	}
+
+	@Test
+	void testStartRejectsFileOutsideImportDirectory() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> importer.start("../secret.ndjson"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> importer.start("missing.ndjson"));
+	}
+
+	@Test
+	void testStatusReturnsEmptyForUnknownImport() {
+		Assertions.assertTrue(importer.status("unknown").isEmpty());
+	}
+}
@@ -0,0 +1,77 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.controller.SubmissionRateLimitInterceptor;
+import com.laurapall.sectorselect.service.SubmissionRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionRateLimitInterceptorTests {
+
+    @Mock
+    private SubmissionRateLimiter limiter;
+
+    @InjectMocks
+    private SubmissionRateLimitInterceptor interceptor;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        request = new MockHttpServletRequest("POST", "/api/submission/submit");
+        request.setRemoteAddr("10.0.0.1");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void testPreHandleLetsRequestThroughAndReleasesAfterCompletion() {
+        when(limiter.acquire("10.0.0.1")).thenReturn(SubmissionRateLimiter.ALLOWED);
+        when(limiter.tryEnter()).thenReturn(true);
+
+        Assertions.assertTrue(interceptor.preHandle(request, response, new Object()));
+        interceptor.afterCompletion(request, response, new Object(), null);
+        interceptor.afterCompletion(request, response, new Object(), null);
+        verify(limiter, times(1)).exit();
+    }
+
+    @Test
+    void testPreHandleRejectsOverRateWithRetryAfter() {
+        when(limiter.acquire("10.0.0.1")).thenReturn(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        Assertions.assertFalse(interceptor.preHandle(request, response, new Object()));
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        Assertions.assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        verify(limiter, never()).tryEnter();
+    }
+
+    @Test
+    void testPreHandleShedsWhenTooManyInProgress() {
+        when(limiter.acquire("10.0.0.1")).thenReturn(SubmissionRateLimiter.ALLOWED);
+        when(limiter.tryEnter()).thenReturn(false);
+
+        Assertions.assertFalse(interceptor.preHandle(request, response, new Object()));
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        Assertions.assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        verify(limiter, never()).exit();
+        verify(limiter, times(1)).refund("10.0.0.1");
+    }
+}
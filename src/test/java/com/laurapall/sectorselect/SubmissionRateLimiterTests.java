@@ -0,0 +1,87 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionRateLimitStats;
+import com.laurapall.sectorselect.service.SubmissionRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class SubmissionRateLimiterTests {
+
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@Test
+	void testAcquireAllowsBurstThenReturnsWaitTime() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(10, 3, 16, 0);
+		long now = System.nanoTime();
+
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		}
+		Assertions.assertEquals(INTERVAL, limiter.acquire("10.0.0.1", now));
+		Assertions.assertEquals(INTERVAL / 2, limiter.acquire("10.0.0.1", now + INTERVAL / 2));
+		Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now + INTERVAL));
+		Assertions.assertEquals(2, limiter.getStats().getRejectedByRate());
+	}
+
+	@Test
+	void testAcquireRefillsAtConfiguredRate() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(10, 1, 16, 0);
+		long now = System.nanoTime();
+
+		for (int i = 0; i < 5; i++) {
+			Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now + i * INTERVAL));
+			Assertions.assertNotEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now + i * INTERVAL));
+		}
+	}
+
+	@Test
+	void testAcquireKeepsClientsApart() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(10, 1, 4096, 0);
+		long now = System.nanoTime();
+
+		Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		Assertions.assertNotEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.2", now));
+	}
+
+	@Test
+	void testRefundGivesRequestBack() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(10, 1, 16, 0);
+		long now = System.nanoTime();
+
+		Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		limiter.refund("10.0.0.1");
+		Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		Assertions.assertNotEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+	}
+
+	@Test
+	void testAcquireWithoutRateLimitAlwaysAllows() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(0, 1, 16, 0);
+		long now = System.nanoTime();
+
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertEquals(SubmissionRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", now));
+		}
+	}
+
+	@Test
+	void testTryEnterShedsOverConcurrencyLimit() {
+		SubmissionRateLimiter limiter = new SubmissionRateLimiter(0, 1, 16, 2);
+
+		Assertions.assertTrue(limiter.tryEnter());
+		Assertions.assertTrue(limiter.tryEnter());
+		Assertions.assertFalse(limiter.tryEnter());
+		Assertions.assertEquals(2, limiter.getStats().getInFlight());
+
+		limiter.exit();
+		Assertions.assertTrue(limiter.tryEnter());
+
+		SubmissionRateLimitStats stats = limiter.getStats();
+		Assertions.assertEquals(3, stats.getAllowed());
+		Assertions.assertEquals(1, stats.getRejectedByConcurrency());
+		Assertions.assertEquals(2, stats.getMaxConcurrent());
+	}
+}
@@ -0,0 +1,311 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SectorStatsDto;
+import com.laurapall.sectorselect.dto.SubmissionDto;
+import com.laurapall.sectorselect.dto.SubmissionPageDto;
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.entity.Sector;
+import com.laurapall.sectorselect.entity.Submission;
+import com.laurapall.sectorselect.repository.SectorRepository;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorBitmapCodec;
+import com.laurapall.sectorselect.service.SectorPopularityCounters;
+import com.laurapall.sectorselect.service.SectorService;
+import com.laurapall.sectorselect.service.SubmissionExporter;
+import com.laurapall.sectorselect.service.SubmissionSectorIndex;
+import com.laurapall.sectorselect.service.SubmissionSectorMigrator;
+import com.laurapall.sectorselect.service.SubmissionSectorStorage;
+import com.laurapall.sectorselect.service.SubmissionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SubmissionRepositoryTests {
+
+	/**
+	 * Load the submission, load its sector rows, write the one changed join row, bump the version.
+	 */
+	private static final long MAX_ONE_SECTOR_UPDATE_STATEMENTS = 4;
+
+	@Autowired
+	private SubmissionRepository submissionRepository;
+
+	@Autowired
+	private SectorRepository sectorRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private SectorService sectorService;
+
+	private SubmissionService service;
+
+	private Statistics statistics;
+
+	private Long submissionId;
+
+	@BeforeEach
+	void setUp() {
+		Sector root = persistSector(1L, null);
+		Submission submission = new Submission();
+		submission.setName("Client Name");
+		for (long id = 2; id <= 6; id++) {
+			Sector sector = persistSector(id, root);
+			if (id <= 4) submission.getSectors().add(sector);
+		}
+		submissionId = entityManager.persist(submission).getId();
+		entityManager.flush();
+		entityManager.clear();
+
+		sectorService = new SectorService(sectorRepository);
+		sectorService.getCatalog();
+		service = createService("table");
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	/**
+	 * Helper method to create the service with a sector storage mode.
+	 * @param storageMode table, dual or bitmap.
+	 * @return service.
+	 */
+	SubmissionService createService(String storageMode) {
+		return new SubmissionService(submissionRepository, sectorService, entityManager.getEntityManager(),
+				storage(storageMode), new SectorPopularityCounters(sectorService, submissionRepository, transactionManager),
+				new SubmissionSectorIndex(submissionRepository, sectorService, transactionManager));
+	}
+
+	/**
+	 * Helper method to create sector storage.
+	 * @param storageMode table, dual or bitmap.
+	 * @return storage.
+	 */
+	SubmissionSectorStorage storage(String storageMode) {
+		return new SubmissionSectorStorage(storageMode, entityManager.getEntityManager());
+	}
+
+	/**
+	 * Helper method to migrate all submissions to a sector storage mode.
+	 * @param storageMode table, dual or bitmap.
+	 * @return number of migrated submissions.
+	 */
+	long migrate(String storageMode) {
+		long migrated = new SubmissionSectorMigrator(submissionRepository, storage(storageMode), transactionManager)
+				.migrate();
+		entityManager.flush();
+		entityManager.clear();
+		return migrated;
+	}
+
+	/**
+	 * Helper method to count join rows of the test submission.
+	 * @return number of join rows.
+	 */
+	long joinRows() {
+		return ((Number) entityManager.getEntityManager()
+				.createNativeQuery("select count(*) from submission_sectors where submission_id = :id")
+				.setParameter("id", submissionId)
+				.getSingleResult()).longValue();
+	}
+
+	/**
+	 * Helper method to persist a sector under a parent.
+	 * @param id sector id.
+	 * @param parent parent sector or null for root.
+	 * @return persisted sector.
+	 */
+	Sector persistSector(long id, Sector parent) {
+		Sector sector = new Sector();
+		sector.setId(id);
+		sector.setName("Sector " + id);
+		sector.setParent(parent);
+		sector.setLevel(parent == null ? 0 : parent.getLevel() + 1);
+		if (parent != null) parent.getChildren().add(sector);
+		return entityManager.persist(sector);
+	}
+
+	/**
+	 * Helper method to update the test submission.
+	 * @param sectorIds new sector ids.
+	 * @return submission response.
+	 */
+	SubmissionResponse update(List<Long> sectorIds) {
+		SubmissionRequest request = new SubmissionRequest();
+		request.setName("Client Name");
+		request.setSectorIds(sectorIds);
+		request.setAgree(true);
+		request.setEditSubmissionId(submissionId);
+		SubmissionResponse response = service.updateCurrentSubmission(request);
+		entityManager.flush();
+		return response;
+	}
+
+	@Test
+	void testAddingOneSectorWritesOnlyOneJoinRow() {
+		SubmissionResponse response = update(List.of(2L, 3L, 4L, 5L));
+
+		Assertions.assertTrue(response.isValid());
+		Assertions.assertEquals(0, statistics.getCollectionRecreateCount());
+		Assertions.assertEquals(1, statistics.getCollectionUpdateCount());
+		Assertions.assertTrue(statistics.getPrepareStatementCount() <= MAX_ONE_SECTOR_UPDATE_STATEMENTS,
+				"One sector change issued " + statistics.getPrepareStatementCount() + " statements");
+	}
+
+	@Test
+	void testStaleVersionIsRejectedWithoutWriting() {
+		SubmissionRequest request = new SubmissionRequest();
+		request.setName("Other Name");
+		request.setSectorIds(List.of(2L));
+		request.setAgree(true);
+		request.setEditSubmissionId(submissionId);
+
+		Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+				() -> service.updateCurrentSubmission(request, 7L));
+		Assertions.assertEquals(0, statistics.getEntityUpdateCount());
+		Assertions.assertEquals(0, statistics.getCollectionUpdateCount());
+	}
+
+	@Test
+	void testUpdateIncrementsVersion() {
+		SubmissionResponse response = update(List.of(2L, 3L, 4L, 5L));
+
+		Assertions.assertEquals(1L, response.getVersion());
+	}
+
+	@Test
+	void testRemovingOneSectorDeletesOnlyOneJoinRow() {
+		update(List.of(2L, 3L));
+
+		Assertions.assertEquals(0, statistics.getCollectionRecreateCount());
+		Assertions.assertTrue(statistics.getPrepareStatementCount() <= MAX_ONE_SECTOR_UPDATE_STATEMENTS,
+				"One sector change issued " + statistics.getPrepareStatementCount() + " statements");
+
+		entityManager.clear();
+		Submission saved = submissionRepository.findById(submissionId).orElseThrow();
+		Assertions.assertEquals(2, saved.getSectors().size());
+	}
+
+	@Test
+	void testPagesAreReadWithOneStatementEach() {
+		Submission empty = new Submission();
+		empty.setName("No Sectors");
+		Long emptyId = entityManager.persist(empty).getId();
+		Submission other = new Submission();
+		other.setName("Other");
+		other.getSectors().add(entityManager.find(Sector.class, 6L));
+		Long otherId = entityManager.persist(other).getId();
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+
+		SubmissionPageDto first = service.getSubmissions(null, 2);
+		SubmissionPageDto second = service.getSubmissions(first.nextAfter(), 2);
+
+		Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+		Assertions.assertEquals(List.of(submissionId, emptyId), first.items().stream().map(SubmissionDto::id).toList());
+		Assertions.assertEquals(List.of(2L, 3L, 4L), first.items().get(0).sectorIds());
+		Assertions.assertEquals(List.of(), first.items().get(1).sectorIds());
+		Assertions.assertEquals(emptyId, first.nextAfter());
+		Assertions.assertEquals(List.of(otherId), second.items().stream().map(SubmissionDto::id).toList());
+		Assertions.assertEquals(List.of(6L), second.items().get(0).sectorIds());
+		Assertions.assertNull(second.nextAfter());
+	}
+
+	@Test
+	void testGetSubmissionReadsSectorsInOneStatement() {
+		SubmissionDto submission = service.getSubmission(submissionId).orElseThrow();
+
+		Assertions.assertEquals("Client Name", submission.name());
+		Assertions.assertEquals(List.of(2L, 3L, 4L), submission.sectorIds());
+		Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+		Assertions.assertTrue(service.getSubmission(submissionId + 1000).isEmpty());
+	}
+
+	@Test
+	void testMigrationMovesSelectionsBetweenStorageModes() {
+		Assertions.assertEquals(1, migrate("dual"));
+		Assertions.assertEquals(3, joinRows());
+		Assertions.assertEquals(0, migrate("dual"));
+
+		Assertions.assertEquals(1, migrate("bitmap"));
+		Assertions.assertEquals(0, joinRows());
+		Submission saved = submissionRepository.findById(submissionId).orElseThrow();
+		Assertions.assertEquals(List.of(2L, 3L, 4L), SectorBitmapCodec.decodeIds(saved.getSectorBitmap()));
+		entityManager.clear();
+
+		Assertions.assertEquals(1, migrate("table"));
+		Assertions.assertEquals(3, joinRows());
+		Assertions.assertNull(submissionRepository.findById(submissionId).orElseThrow().getSectorBitmap());
+	}
+
+	@Test
+	void testBitmapSubmissionIsReadInOneStatement() {
+		service = createService("bitmap");
+		update(List.of(4L, 6L));
+		entityManager.clear();
+		statistics.clear();
+
+		SubmissionDto submission = service.getSubmission(submissionId).orElseThrow();
+
+		Assertions.assertEquals(List.of(4L, 6L), submission.sectorIds());
+		Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+		Assertions.assertEquals(0, joinRows());
+		Assertions.assertEquals(List.of(4L, 6L), service.getSubmissions(null, 10).items().get(0).sectorIds());
+	}
+
+	@Test
+	void testCountersAndIndexIncludeBitmapSubmissions() {
+		migrate("bitmap");
+		SubmissionSectorIndex index = new SubmissionSectorIndex(submissionRepository, sectorService, transactionManager);
+		index.build();
+		SectorPopularityCounters counters = new SectorPopularityCounters(sectorService, submissionRepository, transactionManager);
+		counters.reconcile();
+
+		Assertions.assertEquals(List.of(submissionId),
+				index.findSubmissions(1L, true, null, 10).orElseThrow().submissionIds());
+		SectorStatsDto root = counters.getStats().get(0);
+		Assertions.assertEquals(1L, root.getId());
+		Assertions.assertEquals(0, root.getSelected());
+		Assertions.assertEquals(1, root.getSelectedInSubtree());
+	}
+
+	@Test
+	void testExportStreamsJoinRowsAndBitmaps() throws IOException {
+		Submission other = new Submission();
+		other.setName("Other");
+		other.setSectorBitmap(SectorBitmapCodec.encode(List.of(6L, 5L)));
+		Long otherId = entityManager.persist(other).getId();
+		entityManager.flush();
+		entityManager.clear();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SubmissionExporter(submissionRepository).export(out, SubmissionExporter.Format.NDJSON, null);
+
+		Assertions.assertEquals(
+				"{\"id\":" + submissionId + ",\"name\":\"Client Name\",\"version\":0,\"sectorIds\":[2,3,4]}\n"
+				+ "{\"id\":" + otherId + ",\"name\":\"Other\",\"version\":0,\"sectorIds\":[5,6]}\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+}
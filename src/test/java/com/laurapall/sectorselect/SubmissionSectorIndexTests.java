@@ -0,0 +1,104 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionIdPageDto;
+import com.laurapall.sectorselect.dto.SubmissionSectorPair;
+import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorService;
+import com.laurapall.sectorselect.service.SubmissionSectorIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionSectorIndexTests {
+
+	@Mock
+	private SubmissionRepository submissionRepository;
+
+	@Mock
+	private SectorService sectorService;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private SubmissionSectorIndex index;
+
+	@BeforeEach
+	void setUp() {
+		SectorCatalog catalog = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Root")
+				.add(2L, 1L, "Child")
+				.add(3L, 2L, "Grandchild")
+				.add(4L, SectorCatalog.NO_PARENT, "Other root")
+				.build();
+		lenient().when(sectorService.getCatalog()).thenReturn(catalog);
+		when(submissionRepository.streamAllSectorPairs()).thenReturn(Stream.of(
+				new SubmissionSectorPair(10L, 1L),
+				new SubmissionSectorPair(11L, 3L),
+				new SubmissionSectorPair(12L, 3L),
+				new SubmissionSectorPair(12L, 4L)));
+		index = new SubmissionSectorIndex(submissionRepository, sectorService, transactionManager);
+		index.build();
+	}
+
+	/**
+	 * Helper method to get all matching ids.
+	 * @param sectorId sector id.
+	 * @param includeDescendants whether to include sub-sectors.
+	 * @return submission ids.
+	 */
+	List<Long> ids(long sectorId, boolean includeDescendants) {
+		return index.findSubmissions(sectorId, includeDescendants, null, 100).orElseThrow().submissionIds();
+	}
+
+	@Test
+	void testBuildIndexesStoredSelections() {
+		Assertions.assertTrue(index.isReady());
+		Assertions.assertEquals(List.of(10L), ids(1L, false));
+		Assertions.assertEquals(List.of(11L, 12L), ids(3L, false));
+	}
+
+	@Test
+	void testSubtreeQueryUnitesDescendants() {
+		Assertions.assertEquals(List.of(10L, 11L, 12L), ids(1L, true));
+		Assertions.assertEquals(List.of(11L, 12L), ids(2L, true));
+		Assertions.assertEquals(List.of(), ids(2L, false));
+	}
+
+	@Test
+	void testChangesAreApplied() {
+		index.recordChange(12L, List.of(3L, 4L), List.of(2L));
+		index.recordChange(13L, List.of(), List.of(4L));
+
+		Assertions.assertEquals(List.of(11L), ids(3L, false));
+		Assertions.assertEquals(List.of(12L), ids(2L, false));
+		Assertions.assertEquals(List.of(13L), ids(4L, false));
+	}
+
+	@Test
+	void testPagesContinueAfterLastId() {
+		SubmissionIdPageDto first = index.findSubmissions(1L, true, null, 2).orElseThrow();
+		SubmissionIdPageDto second = index.findSubmissions(1L, true, first.nextAfter(), 2).orElseThrow();
+
+		Assertions.assertEquals(3, first.total());
+		Assertions.assertEquals(List.of(10L, 11L), first.submissionIds());
+		Assertions.assertEquals(List.of(12L), second.submissionIds());
+		Assertions.assertNull(second.nextAfter());
+	}
+
+	@Test
+	void testUnknownSectorIsEmpty() {
+		Assertions.assertTrue(index.findSubmissions(99L, true, null, 10).isEmpty());
+	}
+}
@@ -1,27 +1,39 @@
 package com.laurapall.sectorselect;
 
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
 import com.laurapall.sectorselect.dto.SubmissionRequest;
 import com.laurapall.sectorselect.dto.SubmissionResponse;
 import com.laurapall.sectorselect.entity.Sector;
 import com.laurapall.sectorselect.entity.Submission;
-import com.laurapall.sectorselect.repository.SectorRepository;
 import com.laurapall.sectorselect.repository.SubmissionRepository;
+import com.laurapall.sectorselect.service.SectorBitmapCodec;
+import com.laurapall.sectorselect.service.SectorCatalog;
+import com.laurapall.sectorselect.service.SectorPopularityCounters;
+import com.laurapall.sectorselect.service.SectorService;
+import com.laurapall.sectorselect.service.SubmissionSectorIndex;
+import com.laurapall.sectorselect.service.SubmissionSectorStorage;
 import com.laurapall.sectorselect.service.SubmissionService;
+import jakarta.persistence.EntityManager;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -34,16 +46,46 @@ class SubmissionServiceTests {
 	private SubmissionRepository submissionRepository;
 
 	@Mock
-	private SectorRepository sectorRepository;
+	private SectorService sectorService;
+
+	@Mock
+	private EntityManager entityManager;
+
+	@Mock
+	private SectorPopularityCounters popularityCounters;
+
+	@Mock
+	private SubmissionSectorIndex sectorIndex;
 
-	@InjectMocks
 	private SubmissionService service;
 
 	private LogCaptor logCaptor;
 
+	private final List<Sector> sectors = getListOfSectors();
+
 	@BeforeEach
 	void setUp() {
 		logCaptor = LogCaptor.forClass(SubmissionService.class);
+		service = createService("table");
+		SectorCatalog catalog = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Sector 1")
+				.add(2L, 1L, "Sector 2")
+				.add(3L, 2L, "Sector 3")
+				.build();
+		lenient().when(sectorService.getCatalogForWrite()).thenReturn(catalog);
+		lenient().when(sectorService.getCatalog()).thenReturn(catalog);
+		lenient().when(entityManager.getReference(eq(Sector.class), any()))
+				.thenAnswer(invocation -> sectors.get(((Long) invocation.getArgument(1)).intValue() - 1));
+	}
+
+	/**
+	 * Helper method to create the service with a sector storage mode.
+	 * @param storageMode table, dual or bitmap.
+	 * @return service.
+	 */
+	SubmissionService createService(String storageMode) {
+		return new SubmissionService(submissionRepository, sectorService, entityManager,
+				new SubmissionSectorStorage(storageMode, entityManager), popularityCounters, sectorIndex);
 	}
 
 	/**
@@ -101,24 +143,18 @@ class SubmissionServiceTests {
 
 	@Test
 	void testCreateSubmissionCorrectReturnsValidResponse() {
-		when(sectorRepository.findAllById(any())).thenReturn(getListOfSectors());
 		SubmissionResponse result = service.createSubmission(createValidSubmissionRequest());
 		Assertions.assertTrue(result.isValid());
 	}
 
 	@Test
 	void testCreateSubmissionCorrectSavedInRepository() {
-		List<Sector> sectors = getListOfSectors();
-		when(sectorRepository.findAllById(any())).thenReturn(sectors);
-
 		service.createSubmission(createValidSubmissionRequest());
 		verify(submissionRepository, times(1)).save(any(Submission.class));
 	}
 
 	@Test
 	void testCreateSubmissionCorrectCorrectDataSaved() {
-		List<Sector> sectors = getListOfSectors();
-		when(sectorRepository.findAllById(any())).thenReturn(sectors);
 		service.createSubmission(createValidSubmissionRequest());
 
 		ArgumentCaptor<Submission> captor = ArgumentCaptor.forClass(Submission.class);
@@ -204,7 +240,6 @@ class SubmissionServiceTests {
 	void testUpdateCurrentSubmissionCorrectReturnsValidResponse() {
 		Submission submission = new Submission();
 		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
-		when(sectorRepository.findAllById(any())).thenReturn(getListOfSectors());
 
 		SubmissionResponse result = service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
 		Assertions.assertTrue(result.isValid());
@@ -214,23 +249,20 @@ class SubmissionServiceTests {
 	void testUpdateCurrentSubmissionCorrectSavedInRepository() {
 		Submission submission = new Submission();
 		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
-		when(sectorRepository.findAllById(any())).thenReturn(getListOfSectors());
 
 		service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
-		verify(submissionRepository, times(1)).save(any(Submission.class));
+		verify(submissionRepository, times(1)).saveAndFlush(any(Submission.class));
 	}
 
 	@Test
 	void testUpdateCurrentSubmissionCorrectDataSaved() {
-		List<Sector> sectors = getListOfSectors();
 		Submission submission = new Submission();
 		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
-		when(sectorRepository.findAllById(any())).thenReturn(sectors);
 
 		service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
 
 		ArgumentCaptor<Submission> captor = ArgumentCaptor.forClass(Submission.class);
-		verify(submissionRepository, times(1)).save(captor.capture());
+		verify(submissionRepository, times(1)).saveAndFlush(captor.capture());
 
 		Submission saved = captor.getValue();
 
@@ -255,7 +287,267 @@ class SubmissionServiceTests {
 		request.setAgree(false);
 
 		service.updateCurrentSubmission(request);
+		verify(submissionRepository, never()).saveAndFlush(any(Submission.class));
+	}
+
+	@Test
+	void testCreateSubmissionsReturnsResultPerItem() {
+		SubmissionRequest invalid = createValidSubmissionRequest();
+		invalid.setAgree(false);
+		SubmissionRequest unknownSector = createValidSubmissionRequest();
+		unknownSector.setSectorIds(List.of(1L, 99L));
+
+		SubmissionBatchResponse response = service.createSubmissions(
+				List.of(createValidSubmissionRequest(), invalid, unknownSector));
+
+		Assertions.assertEquals(1, response.getAccepted());
+		Assertions.assertEquals(2, response.getRejected());
+		Assertions.assertTrue(response.getResults().get(0).isValid());
+		Assertions.assertEquals(List.of(1L, 2L, 3L), response.getResults().get(0).getSectorIds());
+		Assertions.assertEquals(List.of("must agree to terms"), response.getResults().get(1).getErrors());
+		Assertions.assertEquals(List.of("unknown sector ids: [99]"), response.getResults().get(2).getErrors());
+		verify(entityManager, times(1)).persist(any(Submission.class));
+	}
+
+	@Test
+	void testCreateSubmissionsChecksSectorsOnceAndFlushesPerChunk() {
+		List<SubmissionRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			requests.add(createValidSubmissionRequest());
+		}
+
+		service.createSubmissions(requests);
+
+		verify(sectorService, times(1)).getCatalogForWrite();
+		verify(entityManager, times(250)).persist(any(Submission.class));
+		verify(entityManager, times(3)).flush();
+		verify(entityManager, times(3)).clear();
+		verify(submissionRepository, never()).save(any());
+	}
+
+	@Test
+	void testCreateSubmissionsEditsExistingSubmission() {
+		Submission existing = new Submission();
+		existing.setId(123L);
+		when(submissionRepository.findAllById(List.of(123L))).thenReturn(List.of(existing));
+
+		SubmissionBatchResponse response = service.createSubmissions(List.of(createValidSubmissionUpdateRequest()));
+
+		Assertions.assertEquals(1, response.getAccepted());
+		Assertions.assertEquals("Client Name", existing.getName());
+		verify(entityManager, never()).persist(any());
+	}
+
+	@Test
+	void testCreateSubmissionsRejectsStaleEditPerItem() {
+		Submission existing = new Submission();
+		existing.setId(123L);
+		existing.setVersion(5L);
+		when(submissionRepository.findAllById(List.of(123L))).thenReturn(List.of(existing));
+		SubmissionRequest stale = createValidSubmissionUpdateRequest();
+		stale.setVersion(4L);
+
+		SubmissionBatchResponse response = service.createSubmissions(List.of(stale, createValidSubmissionRequest()));
+
+		Assertions.assertEquals(1, response.getAccepted());
+		Assertions.assertEquals(1, response.getRejected());
+		Assertions.assertEquals(List.of("submission was changed, current version is 5"),
+				response.getResults().get(0).getErrors());
+		Assertions.assertNotEquals("Client Name", existing.getName());
+		verify(entityManager, times(1)).persist(any(Submission.class));
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionRejectsStaleVersionFromRequest() {
+		Submission submission = new Submission();
+		submission.setId(123L);
+		submission.setVersion(5L);
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+		SubmissionRequest request = createValidSubmissionUpdateRequest();
+		request.setVersion(4L);
+
+		Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+				() -> service.updateCurrentSubmission(request, null));
+		verify(submissionRepository, never()).saveAndFlush(any(Submission.class));
+	}
+
+	@Test
+	void testCreateSubmissionRejectsUnknownSectorIds() {
+		SubmissionRequest request = createValidSubmissionRequest();
+		request.setSectorIds(List.of(1L, 99L, 42L, 99L));
+
+		SubmissionResponse result = service.createSubmission(request);
+
+		Assertions.assertFalse(result.isValid());
+		Assertions.assertEquals(List.of(99L, 42L), result.getUnknownSectorIds());
+		Assertions.assertEquals(List.of("unknown sector ids: [99, 42]"), result.getErrors());
 		verify(submissionRepository, never()).save(any(Submission.class));
 	}
 
+	@Test
+	void testUpdateCurrentSubmissionRejectsUnknownSectorIds() {
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(new Submission()));
+		SubmissionRequest request = createValidSubmissionUpdateRequest();
+		request.setSectorIds(List.of(7L));
+
+		SubmissionResponse result = service.updateCurrentSubmission(request);
+
+		Assertions.assertFalse(result.isValid());
+		Assertions.assertEquals(List.of(7L), result.getUnknownSectorIds());
+		verify(submissionRepository, never()).saveAndFlush(any(Submission.class));
+	}
+
+	@Test
+	void testCreateSubmissionUsesSectorReferences() {
+		service.createSubmission(createValidSubmissionRequest());
+
+		verify(entityManager, times(3)).getReference(eq(Sector.class), any());
+		verify(entityManager, never()).find(eq(Sector.class), any());
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionChangesSectorsInPlace() {
+		Submission submission = new Submission();
+		submission.getSectors().add(sectors.get(0));
+		submission.getSectors().add(sectors.get(1));
+		Set<Sector> collection = submission.getSectors();
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+		SubmissionRequest request = createValidSubmissionUpdateRequest();
+		request.setSectorIds(List.of(2L, 3L));
+
+		service.updateCurrentSubmission(request);
+
+		Assertions.assertSame(collection, submission.getSectors());
+		Assertions.assertEquals(Set.of(sectors.get(1), sectors.get(2)), submission.getSectors());
+		verify(entityManager, times(1)).getReference(eq(Sector.class), any());
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionRejectsStaleVersion() {
+		Submission submission = new Submission();
+		submission.setId(123L);
+		submission.setVersion(5L);
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+				() -> service.updateCurrentSubmission(createValidSubmissionUpdateRequest(), 4L));
+		verify(submissionRepository, never()).saveAndFlush(any(Submission.class));
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionAcceptsMatchingVersion() {
+		Submission submission = new Submission();
+		submission.setVersion(5L);
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		SubmissionResponse result = service.updateCurrentSubmission(createValidSubmissionUpdateRequest(), 5L);
+
+		Assertions.assertTrue(result.isValid());
+		Assertions.assertEquals(5L, result.getVersion());
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionRecordsOldAndNewSectors() {
+		Submission submission = new Submission();
+		submission.getSectors().add(sectors.get(0));
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
+
+		verify(popularityCounters, times(1)).recordChange(List.of(1L), List.of(1L, 2L, 3L));
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionUpdatesSectorIndex() {
+		Submission submission = new Submission();
+		submission.setId(123L);
+		submission.getSectors().add(sectors.get(0));
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
+
+		verify(sectorIndex, times(1)).recordChange(123L, List.of(1L), List.of(1L, 2L, 3L));
+	}
+
+	@Test
+	void testCreateSubmissionInBitmapModeWritesNoJoinRows() {
+		service = createService("bitmap");
+		SubmissionRequest request = createValidSubmissionRequest();
+		request.setSectorIds(List.of(3L, 1L));
+
+		SubmissionResponse result = service.createSubmission(request);
+
+		ArgumentCaptor<Submission> captor = ArgumentCaptor.forClass(Submission.class);
+		verify(submissionRepository, times(1)).save(captor.capture());
+		Assertions.assertTrue(captor.getValue().getSectors().isEmpty());
+		Assertions.assertEquals(List.of(1L, 3L), SectorBitmapCodec.decodeIds(captor.getValue().getSectorBitmap()));
+		Assertions.assertEquals(List.of(1L, 3L), result.getSectorIds());
+		verify(entityManager, never()).getReference(eq(Sector.class), any());
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionInBitmapModeDropsJoinRows() {
+		service = createService("bitmap");
+		Submission submission = new Submission();
+		submission.setId(123L);
+		submission.getSectors().add(sectors.get(0));
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
+
+		Assertions.assertTrue(submission.getSectors().isEmpty());
+		Assertions.assertEquals(List.of(1L, 2L, 3L), SectorBitmapCodec.decodeIds(submission.getSectorBitmap()));
+		verify(sectorIndex, times(1)).recordChange(123L, List.of(1L), List.of(1L, 2L, 3L));
+	}
+
+	@Test
+	void testUpdateCurrentSubmissionInTableModeRestoresJoinRows() {
+		Submission submission = new Submission();
+		submission.setSectorBitmap(SectorBitmapCodec.encode(List.of(1L)));
+		when(submissionRepository.findById(123L)).thenReturn(Optional.of(submission));
+
+		SubmissionResponse result = service.updateCurrentSubmission(createValidSubmissionUpdateRequest());
+
+		Assertions.assertNull(submission.getSectorBitmap());
+		Assertions.assertEquals(new HashSet<>(sectors), submission.getSectors());
+		Assertions.assertEquals(List.of(1L, 2L, 3L), result.getSectorIds());
+		verify(popularityCounters, times(1)).recordChange(List.of(1L), List.of(1L, 2L, 3L));
+	}
+
+	@Test
+	void testValidateChecksSectorIdsAgainstCurrentCatalog() {
+		SubmissionRequest request = createValidSubmissionRequest();
+		request.setSectorIds(List.of(1L, 99L));
+
+		Assertions.assertEquals(List.of("unknown sector ids: [99]"), service.validate(request));
+		Assertions.assertTrue(service.validate(createValidSubmissionRequest()).isEmpty());
+		verify(submissionRepository, never()).findById(any());
+	}
+
+	@Test
+	void testRetiredSectorsCountAsUnknown() {
+		when(sectorService.isRetired(anyLong())).thenAnswer(invocation -> invocation.getArgument(0).equals(3L));
+
+		SubmissionResponse result = service.createSubmission(createValidSubmissionRequest());
+
+		Assertions.assertFalse(result.isValid());
+		Assertions.assertEquals(List.of(3L), result.getUnknownSectorIds());
+		verify(submissionRepository, never()).save(any());
+	}
+
+	@Test
+	void testBitmapStorageRejectsIdsOutsideBitmapRange() {
+		service = createService("dual");
+		long large = SectorBitmapCodec.MAX_SECTOR_ID + 1;
+		SectorCatalog catalog = new SectorCatalog.Builder()
+				.add(1L, SectorCatalog.NO_PARENT, "Sector 1")
+				.add(large, 1L, "Large")
+				.build();
+		SubmissionRequest request = createValidSubmissionRequest();
+		request.setSectorIds(List.of(1L, large));
+
+		Assertions.assertEquals(List.of("sector ids cannot be stored: [" + large + "]"),
+				service.validate(request, catalog));
+		Assertions.assertTrue(createService("table").validate(request, catalog).isEmpty());
+	}
 }
@@ -0,0 +1,145 @@
+package com.laurapall.sectorselect;
+
+import com.laurapall.sectorselect.dto.SubmissionBatchResponse;
+import com.laurapall.sectorselect.dto.SubmissionRequest;
+import com.laurapall.sectorselect.dto.SubmissionResponse;
+import com.laurapall.sectorselect.dto.SubmissionTicketResponse;
+import com.laurapall.sectorselect.service.SubmissionService;
+import com.laurapall.sectorselect.service.SubmissionWriteQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionWriteQueueTests {
+
+	@Mock
+	private SubmissionService service;
+
+	private SubmissionWriteQueue queue;
+
+	@AfterEach
+	void tearDown() {
+		if (queue != null) queue.stop();
+	}
+
+	@Test
+	void testEnqueueIsRejectedBeforeStart() {
+		queue = new SubmissionWriteQueue(service, 10, 10, 60);
+
+		Assertions.assertTrue(queue.enqueue(new SubmissionRequest()).isEmpty());
+	}
+
+	@Test
+	void testRejectsWhenFullAndDrainsOnStop() throws InterruptedException {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(service.createSubmissions(anyList())).thenAnswer(invocation -> {
+			writing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return batchOf(invocation.<List<SubmissionRequest>>getArgument(0).size());
+		});
+		queue = new SubmissionWriteQueue(service, 1, 10, 60);
+		queue.start();
+
+		String first = queue.enqueue(new SubmissionRequest()).orElseThrow();
+		Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+		String second = queue.enqueue(new SubmissionRequest()).orElseThrow();
+		Assertions.assertTrue(queue.enqueue(new SubmissionRequest()).isEmpty());
+		Assertions.assertEquals(SubmissionTicketResponse.State.QUEUED, queue.status(second).orElseThrow().getState());
+
+		release.countDown();
+		queue.stop();
+
+		verify(service, times(2)).createSubmissions(anyList());
+		Assertions.assertEquals(SubmissionTicketResponse.State.DONE, queue.status(first).orElseThrow().getState());
+		Assertions.assertEquals(SubmissionTicketResponse.State.DONE, queue.status(second).orElseThrow().getState());
+		Assertions.assertEquals(0, queue.size());
+	}
+
+	@Test
+	void testFailedGroupMarksTicketsFailed() {
+		when(service.createSubmissions(anyList())).thenThrow(new IllegalStateException("database down"));
+		queue = new SubmissionWriteQueue(service, 10, 10, 60);
+		queue.start();
+
+		String ticket = queue.enqueue(new SubmissionRequest()).orElseThrow();
+		queue.stop();
+
+		SubmissionTicketResponse status = queue.status(ticket).orElseThrow();
+		Assertions.assertEquals(SubmissionTicketResponse.State.FAILED, status.getState());
+		Assertions.assertNotNull(status.getError());
+	}
+
+	@Test
+	void testFailedGroupIsRetriedOneByOne() throws InterruptedException {
+		SubmissionRequest first = new SubmissionRequest();
+		SubmissionRequest good = new SubmissionRequest();
+		SubmissionRequest bad = new SubmissionRequest();
+		CountDownLatch release = new CountDownLatch(1);
+		when(service.createSubmissions(anyList())).thenAnswer(invocation -> {
+			List<SubmissionRequest> requests = invocation.getArgument(0);
+			if (requests.get(0) == first) release.await(5, TimeUnit.SECONDS);
+			if (requests.stream().anyMatch(request -> request == bad)) {
+				throw new IllegalStateException("constraint violated");
+			}
+			return batchOf(requests.size());
+		});
+		queue = new SubmissionWriteQueue(service, 10, 10, 60);
+		queue.start();
+
+		queue.enqueue(first).orElseThrow();
+		String goodTicket = queue.enqueue(good).orElseThrow();
+		String badTicket = queue.enqueue(bad).orElseThrow();
+		release.countDown();
+		queue.stop();
+
+		Assertions.assertEquals(SubmissionTicketResponse.State.DONE, queue.status(goodTicket).orElseThrow().getState());
+		SubmissionTicketResponse status = queue.status(badTicket).orElseThrow();
+		Assertions.assertEquals(SubmissionTicketResponse.State.FAILED, status.getState());
+		Assertions.assertNotNull(status.getError());
+	}
+
+	@Test
+	void testRejectedSubmissionMarksTicketFailedWithResult() {
+		SubmissionResponse rejected = new SubmissionResponse();
+		rejected.setValid(false);
+		rejected.setErrors(List.of("unknown sector ids"));
+		SubmissionBatchResponse response = new SubmissionBatchResponse();
+		response.setRejected(1);
+		response.setResults(List.of(rejected));
+		when(service.createSubmissions(anyList())).thenReturn(response);
+		queue = new SubmissionWriteQueue(service, 10, 10, 60);
+		queue.start();
+
+		String ticket = queue.enqueue(new SubmissionRequest()).orElseThrow();
+		queue.stop();
+
+		SubmissionTicketResponse status = queue.status(ticket).orElseThrow();
+		Assertions.assertEquals(SubmissionTicketResponse.State.FAILED, status.getState());
+		Assertions.assertEquals("unknown sector ids", status.getError());
+		Assertions.assertSame(rejected, status.getResult());
+	}
+
+	private SubmissionBatchResponse batchOf(int size) {
+		SubmissionResponse result = new SubmissionResponse();
+		result.setValid(true);
+		SubmissionBatchResponse response = new SubmissionBatchResponse();
+		response.setAccepted(size);
+		response.setResults(Collections.nCopies(size, result));
+		return response;
+	}
+}